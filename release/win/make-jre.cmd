@@ -1 +1 @@
-jlink.exe --module-path out --add-modules java.base,java.desktop --output jre
\ No newline at end of file
+jlink.exe --module-path out --add-modules java.base,java.desktop,jdk.unsupported,jdk.httpserver,jdk.jfr --output jre
\ No newline at end of file
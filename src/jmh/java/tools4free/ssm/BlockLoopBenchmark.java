@@ -0,0 +1,131 @@
+package tools4free.ssm;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Cost of one iteration of the per-block loop of {@link TestWriter} / {@link TestReader}
+ * against a sink that takes no time, i.e. the ceiling of what the tool can measure.
+ * Sink and source may be pointed to a file on tmpfs, e.g. -p sink=/dev/shm/ssm-bench.bin.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlockLoopBenchmark {
+    static final long WRAP = 256L * SsdSlowMark.MB;
+
+    @Param({ "4", "1024" })
+    int bs;
+
+    @Param({ "stream", "channel" })
+    String engine;
+
+    @Param({ "/dev/null" })
+    String sink;
+
+    @Param({ "/dev/zero" })
+    String source;
+
+    IoEngine writer;
+    IoEngine reader;
+    ByteBuffer data;
+    float blockSizeMb;
+    long pos;
+    float perfMin = Float.MAX_VALUE, perfMax = 0;
+
+    TestCase testCase;
+    TestCase.Job job;
+    PrintStream stdout;
+
+    @Setup
+    public void setup() throws IOException {
+        if( SsdSlowMark.si == null )
+            SsdSlowMark.si = new SysInfo();
+
+        Config config = new Config();
+        config.bs = bs;
+        config.engine = engine;
+        config.out = System.getProperty("java.io.tmpdir");
+
+        File root = new File(config.out);
+        writer = IoEngine.create(config, root).openWrite(new File(sink));
+        reader = IoEngine.create(config, root).openRead(new File(source));
+        data = writer.allocate(bs * SsdSlowMark.KB);
+        blockSizeMb = bs / (float)SsdSlowMark.KB;
+        testCase = new TestWriter(config);
+        job = new TestCase.Job(0);
+
+        // printPerf goes to console
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        writer.close();
+        reader.close();
+    }
+
+    @Benchmark
+    public float measure() throws IOException {
+        long started = System.nanoTime();
+        long finished = System.nanoTime();
+
+        return addBlock(started, finished);
+    }
+
+    @Benchmark
+    public float writeBlock() throws IOException {
+        if( pos >= WRAP ) {
+            writer.close();
+            writer = writer.openWrite(new File(sink));
+            pos = 0;
+        }
+
+        long started = System.nanoTime();
+        {
+            writer.write(data, pos);
+        }
+        long finished = System.nanoTime();
+
+        pos += data.capacity();
+        return addBlock(started, finished);
+    }
+
+    @Benchmark
+    public float readBlock() throws IOException {
+        long started = System.nanoTime();
+        {
+            reader.read(data, 0);
+        }
+        long finished = System.nanoTime();
+
+        return addBlock(started, finished);
+    }
+
+    @Benchmark
+    public void printPerf() {
+        TestCase.printPerf("Write", new File(sink), System.nanoTime() - 1_000_000, 4096 * SsdSlowMark.KB,
+                           perfMin, perfMax, 123, 0.5);
+    }
+
+    private float addBlock(long started, long finished) throws IOException {
+        float sec = (finished - started) / SsdSlowMark.NANO_SEC;
+        float perfBlock = blockSizeMb / sec;
+
+        perfMin = min(perfMin, perfBlock);
+        perfMax = max(perfMax, perfBlock);
+        testCase.addBlock(job, perfBlock, started, started, finished, 0);
+        return perfBlock;
+    }
+}
@@ -0,0 +1,46 @@
+package tools4free.ssm;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of the chart image for a full set of chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChartBenchmark {
+    Config config = new Config();
+    List<ResultsWriter.Chunk> chunks;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        int cChunks = config.iw - config.ip * 2;
+
+        chunks = new ArrayList<>(cChunks);
+        for( int i = 0; i < cChunks; i++ ) {
+            float avg = (i < cChunks / 3 ? 3000 : 800) + (float)rnd.nextGaussian() * 150;
+            chunks.add(new ResultsWriter.Chunk(i * 64f, avg * 0.5f, avg * 0.8f, avg, avg * 1.2f, avg * 1.5f));
+        }
+    }
+
+    @Benchmark
+    public Chart generateSpread() {
+        Chart chart = new Chart(config);
+        chart.generateFor(chunks, Chart.Kind.Spread, Color.DARK_GRAY, true);
+        return chart;
+    }
+
+    @Benchmark
+    public Chart generateLine() {
+        Chart chart = new Chart(config);
+        chart.generateFor(chunks, Chart.Kind.Line, Color.DARK_GRAY, false);
+        return chart;
+    }
+}
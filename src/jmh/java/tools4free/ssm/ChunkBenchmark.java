@@ -0,0 +1,62 @@
+package tools4free.ssm;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reporting over 10M block samples (~10 TB of 1 MB blocks):
+ * online chunk aggregation and percentiles of the chunks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChunkBenchmark {
+    @Param({ "10000000" })
+    int cBlocks;
+
+    float[] samples;
+    List<ResultsWriter.Chunk> chunks;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        samples = new float[cBlocks];
+        for( int i = 0; i < cBlocks; i++ ) {
+            // fast cache first, then slow direct writes with some noise
+            samples[i] = (i < cBlocks / 3 ? 3000 : 800) + (float)rnd.nextGaussian() * 150;
+        }
+        chunks = aggregate();
+    }
+
+    @Benchmark
+    public List<ResultsWriter.Chunk> aggregate() {
+        Config config = new Config();
+        ChunkAggregator aggregator = new ChunkAggregator(config.iw - config.ip * 2, 1);
+
+        aggregator.expect(samples.length);
+        for( float perf : samples ) {
+            aggregator.add(perf);
+        }
+        return aggregator.chunks();
+    }
+
+    /** Same samples without expected count, chunks are merged as they come */
+    @Benchmark
+    public List<ResultsWriter.Chunk> aggregateMerging() {
+        Config config = new Config();
+        ChunkAggregator aggregator = new ChunkAggregator(config.iw - config.ip * 2, 1);
+
+        for( float perf : samples ) {
+            aggregator.add(perf);
+        }
+        return aggregator.chunks();
+    }
+
+    @Benchmark
+    public ResultsWriter.Pctls buildPctls() {
+        return ResultsWriter.buildPctls(chunks);
+    }
+}
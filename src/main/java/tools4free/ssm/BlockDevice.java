@@ -0,0 +1,178 @@
+package tools4free.ssm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Linux block device a directory is on: the mount containing the directory is found in
+ * {@code /proc/self/mountinfo}, its device number leads to {@code /sys/dev/block}, and partitions
+ * are resolved to the whole disk, which is the one with model, firmware and queue in sysfs.
+ */
+public class BlockDevice {
+    static final String[] QUEUE_PARAMS = {
+        "scheduler", "nr_requests", "max_sectors_kb", "rotational",
+        "logical_block_size", "physical_block_size", "write_cache"
+    };
+
+    String name;                // e.g. nvme0n1, as in /proc/diskstats
+    String partition;           // e.g. nvme0n1p2, null if the file system is on the whole disk
+    String model;
+    String firmware;
+    String serial;
+    Map<String,String> queue = new LinkedHashMap<>();
+
+    /** Device the path is on, null when not on Linux or not on a block device (tmpfs, overlay, network) */
+    static BlockDevice of(File path) {
+        try {
+            Path mountInfo = Paths.get("/proc/self/mountinfo");
+            if( !Files.isReadable(mountInfo) )
+                return null;
+
+            String dir = path.getAbsoluteFile().toPath().normalize().toString();
+            for( File f = path.getAbsoluteFile(); f != null; f = f.getParentFile() ) {
+                if( f.exists() ) {
+                    dir = f.getCanonicalPath();
+                    break;
+                }
+            }
+
+            String[] best = null;
+            for( String line : Files.readAllLines(mountInfo, UTF_8) ) {
+                // 28 1 254:0 / / rw,relatime - ext4 /dev/vda rw
+                String[] fields = line.split(" ");
+                String mountPoint = unescape(fields[4]);
+                if( isUnder(dir, mountPoint) && (best == null || mountPoint.length() >= unescape(best[4]).length()) )
+                    best = fields;
+            }
+
+            if( best == null )
+                return null;
+
+            Path sys = Paths.get("/sys/dev/block", best[2]);
+            if( !Files.exists(sys) ) {
+                // e.g. btrfs reports an anonymous device number, the source device tells the partition
+                String source = best[best.length - 2];
+                if( !source.startsWith("/dev/") )
+                    return null;
+                sys = Paths.get("/sys/class/block", Paths.get(source).toRealPath().getFileName().toString());
+                if( !Files.exists(sys) )
+                    return null;
+            }
+
+            return of(sys.toRealPath());
+        }
+        catch( IOException | RuntimeException e ) {
+            return null;
+        }
+    }
+
+    private static BlockDevice of(Path sys) {
+        BlockDevice dev = new BlockDevice();
+
+        if( Files.exists(sys.resolve("partition")) ) {
+            dev.partition = sys.getFileName().toString();
+            sys = sys.getParent();
+        }
+
+        dev.name = sys.getFileName().toString();
+        dev.model = read(sys.resolve("device/model"));
+        dev.firmware = read(sys.resolve("device/firmware_rev"));
+        if( dev.firmware == null )
+            dev.firmware = read(sys.resolve("device/rev"));
+        dev.serial = read(sys.resolve("device/serial"));
+        if( dev.serial == null )
+            dev.serial = read(sys.resolve("serial"));
+
+        for( String param : QUEUE_PARAMS ) {
+            String value = read(sys.resolve("queue").resolve(param));
+            if( value != null )
+                dev.queue.put(param, value);
+        }
+
+        return dev;
+    }
+
+    /**
+     * Input of the drive temperature in hwmon, millidegrees C: under the device for SATA (drivetemp)
+     * and NVMe, or under the NVMe controller. Null when the driver exposes none.
+     */
+    Path temperatureInput() {
+        Path sys = Paths.get("/sys/block", name);
+        String[] dirs = {
+            sys.resolve("device").toString(),
+            sys.resolve("device/hwmon").toString(),
+            "/sys/class/nvme/" + name.replaceFirst("n[0-9]+$", "")
+        };
+
+        for( String dir : dirs ) {
+            try( DirectoryStream<Path> hwmons = Files.newDirectoryStream(Paths.get(dir), "hwmon*") ) {
+                for( Path hwmon : hwmons ) {
+                    Path input = hwmon.resolve("temp1_input");
+                    if( Files.isReadable(input) )
+                        return input;
+                }
+            }
+            catch( IOException e ) {
+                // no such dir
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isUnder(String dir, String mountPoint) {
+        return dir.equals(mountPoint) || "/".equals(mountPoint)
+            || dir.startsWith(mountPoint) && dir.charAt(mountPoint.length()) == '/';
+    }
+
+    /** Mount point with octal escapes of mountinfo (space, tab, backslash) decoded */
+    private static String unescape(String str) {
+        StringBuilder out = new StringBuilder();
+        for( int i = 0; i < str.length(); i++ ) {
+            char c = str.charAt(i);
+            if( c == '\\' && i + 3 < str.length() ) {
+                out.append((char)Integer.parseInt(str.substring(i + 1, i + 4), 8));
+                i += 3;
+            }
+            else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String read(Path path) {
+        try {
+            List<String> lines = Files.readAllLines(path, UTF_8);
+            String value = lines.isEmpty() ? "" : lines.get(0).trim();
+            return value.isEmpty() ? null : value;
+        }
+        catch( IOException e ) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder(name);
+        if( partition != null )
+            str.append(" (").append(partition).append(')');
+        if( model != null )
+            str.append(", ").append(model);
+        if( firmware != null )
+            str.append(", fw ").append(firmware);
+        for( Map.Entry<String,String> e : queue.entrySet() ) {
+            str.append(", ").append(e.getKey()).append(" = ").append(e.getValue());
+        }
+        return str.toString();
+    }
+}
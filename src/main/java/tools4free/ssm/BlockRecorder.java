@@ -0,0 +1,103 @@
+package tools4free.ssm;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Streams per-block results of a test to a spill file in the temp directory with {@code blocks=true},
+ * so the number of blocks is limited by disk space rather than by heap. Only one page of samples
+ * is kept in memory, samples are read back in the order they were added via {@link #reader()}
+ * when the report is written. Every sample is the block throughput, its latency and the time
+ * the block finished at, microseconds since the start of recording.
+ */
+public class BlockRecorder implements Closeable {
+    final static int PAGE = 64 * 1024;
+    final static int SAMPLE = 16;
+
+    File file;
+    FileChannel channel;
+    ByteBuffer page = ByteBuffer.allocateDirect(PAGE).order(ByteOrder.nativeOrder());
+    long count;
+    final long startNs;
+    final long startEpochMs;
+
+    BlockRecorder(String name, long startNs) throws IOException {
+        this.startNs = startNs;
+        this.startEpochMs = System.currentTimeMillis() - (System.nanoTime() - startNs) / 1_000_000;
+        file = File.createTempFile("ssm-" + name + "-", ".blocks");
+        file.deleteOnExit();
+        channel = FileChannel.open(file.toPath(), READ, WRITE, TRUNCATE_EXISTING);
+    }
+
+    void add(float perf, long latencyNs, long finishedNs) throws IOException {
+        if( page.remaining() < SAMPLE )
+            flush();
+
+        page.putFloat(perf);
+        page.putFloat(latencyNs / 1e6f);
+        page.putLong((finishedNs - startNs) / 1000);
+        count++;
+    }
+
+    void flush() throws IOException {
+        page.flip();
+        while( page.hasRemaining() ) {
+            channel.write(page);
+        }
+        page.clear();
+    }
+
+    /** Reader of all samples added so far */
+    Reader reader() throws IOException {
+        flush();
+        return new Reader(count);
+    }
+
+    /** Closes and deletes the spill file */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        file.delete();
+    }
+
+    class Reader {
+        ByteBuffer buf = ByteBuffer.allocateDirect(PAGE).order(ByteOrder.nativeOrder());
+        long filePos;
+        long remaining;
+        float latencyMs;        // latency of the block returned by the last next()
+        long atUs;              // time the block returned by the last next() finished at
+
+        Reader(long count) {
+            remaining = count;
+            buf.limit(0);
+        }
+
+        boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /** Throughput of the next block, MB/s */
+        float next() throws IOException {
+            if( !buf.hasRemaining() ) {
+                buf.clear();
+                while( buf.hasRemaining() && channel.read(buf, filePos + buf.position()) > 0 ) {
+                    // fill the page
+                }
+                filePos += buf.position();
+                buf.flip();
+            }
+
+            remaining--;
+            float perf = buf.getFloat();
+            latencyMs = buf.getFloat();
+            atUs = buf.getLong();
+            return perf;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package tools4free.ssm;
+
+import com.sun.nio.file.ExtendedOpenOption;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Positional {@link FileChannel} I/O from page-aligned direct buffers,
+ * so blocks go to the kernel without a copy through the Java heap.
+ * With {@code direct=true} files are opened with O_DIRECT and buffers
+ * are aligned to the block size of the file system.
+ */
+public class ChannelIoEngine extends IoEngine {
+    FileChannel channel;
+    int align = PAGE;
+
+    ChannelIoEngine(Config config, File root) {
+        super(config, root);
+
+        if( config.direct ) {
+            try {
+                align = Math.max(PAGE, (int)Files.getFileStore(root.toPath()).getBlockSize());
+            }
+            catch( IOException | UnsupportedOperationException e ) {
+                // keep page alignment
+            }
+        }
+    }
+
+    @Override
+    ByteBuffer allocate(int size) {
+        return allocateAligned(size, align);
+    }
+
+    @Override
+    IoEngine openWrite(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), options(CREATE, WRITE, TRUNCATE_EXISTING));
+        return this;
+    }
+
+    @Override
+    IoEngine openRead(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), options(READ));
+        return this;
+    }
+
+    @Override
+    IoEngine openUpdate(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), options(READ, WRITE));
+        return this;
+    }
+
+    private Set<OpenOption> options(OpenOption... options) {
+        Set<OpenOption> all = new HashSet<>();
+        Collections.addAll(all, options);
+        if( config.direct )
+            all.add(ExtendedOpenOption.DIRECT);
+        if( "dsync".equals(config.sync) && all.contains(WRITE) )
+            all.add(DSYNC);
+        return all;
+    }
+
+    @Override
+    void write(ByteBuffer data, long pos) throws IOException {
+        data.clear();
+        while( data.hasRemaining() ) {
+            channel.write(data, pos + data.position());
+        }
+    }
+
+    @Override
+    int read(ByteBuffer data, long pos) throws IOException {
+        data.clear();
+        while( data.hasRemaining() ) {
+            if( channel.read(data, pos + data.position()) < 0 )
+                break;
+        }
+        return (data.position() == 0) ? -1 : data.position();
+    }
+
+    @Override
+    void sync() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Writes and reads back one block in the directory, fails if the file system
+     * refuses O_DIRECT (e.g. tmpfs) or the block size doesn't fit its alignment.
+     */
+    static void checkDirect(Config config, File dir) throws IOException {
+        dir.mkdirs();
+
+        ChannelIoEngine engine = new ChannelIoEngine(config, dir);
+        int blockSize = config.bs * SsdSlowMark.KB;
+        if( blockSize % engine.align != 0 )
+            throw new IOException("block size " + config.bs + " KB is not a multiple of " + engine.align + " bytes");
+
+        ByteBuffer data = engine.allocate(blockSize);
+        File probe = new File(dir, "direct-probe.tmp");
+        try {
+            try( IoEngine io = engine.openWrite(probe) ) {
+                io.write(data, 0);
+                io.sync();
+            }
+            try( IoEngine io = engine.openRead(probe) ) {
+                io.read(data, 0);
+            }
+        }
+        finally {
+            probe.delete();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if( channel != null )
+                channel.close();
+        }
+        finally {
+            channel = null;
+        }
+    }
+}
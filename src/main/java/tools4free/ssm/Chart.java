@@ -1,279 +1,418 @@
-package tools4free.ssm;
-
-import tools4free.ssm.ResultsWriter.Chunk;
-import tools4free.ssm.ResultsWriter.Pctl;
-import tools4free.ssm.ResultsWriter.Pctls;
-
-import java.awt.*;
-import java.awt.geom.Path2D;
-import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.function.BiConsumer;
-
-import static java.lang.Math.abs;
-import static java.util.Locale.US;
-import static javax.swing.SwingConstants.*;
-import static tools4free.ssm.ResultsWriter.buildPctls;
-import static tools4free.ssm.SsdSlowMark.GB;
-
-public class Chart {
-    Config config;
-    BufferedImage img;
-    Graphics2D g;
-    Stroke defaultStroke;
-
-    boolean prepared;
-    boolean framed;
-    Pctls pctls;
-    float dataSizeGb;
-
-    int cMaxChunks;
-    float allMax = Float.MIN_VALUE;
-    float allMin = 0;
-
-    int w;
-    int h;
-    int top;
-    int left;
-    int btm;
-    int right;
-
-    enum Kind {
-        Spread,
-        Line
-    }
-
-    public Chart(Config config) {
-        this.config = config;
-    }
-
-    void prepareFor(List<Chunk> chunks) {
-        pctls = buildPctls(chunks);
-        int pad = config.ip;
-        w = config.iw;
-        h = config.ih;
-
-        allMax = Math.max(allMax, pctls.allMax);
-        allMin = Math.min(allMin, pctls.allMin);
-        top = pad;
-        left = pad;
-        btm = h - pad;
-        right = w - pad / 2;
-    }
-
-    void prepared() {
-        this.prepared = true;
-    }
-
-    void frame() {
-        img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-        g = img.createGraphics();
-        defaultStroke = g.getStroke();
-
-        g.setColor(Color.white);
-        g.fillRect(0, 0, w, h);
-        g.setColor(Color.GRAY);
-        g.drawLine(left, top, left, btm);
-        g.drawLine(left, btm, right, btm);
-
-        g.setColor(Color.GRAY);
-        drawLabel(g, left - 4, top,  RIGHT, BOTTOM, "MB/s");
-        drawLabel(g, left - 4, top,  RIGHT,    TOP, String.format(US, "%.1f", allMax));
-        drawLabel(g, left - 4, btm,  RIGHT, BOTTOM, String.format(US, "%.1f", allMin));
-        drawLabel(g, left + 4, btm,   LEFT,    TOP, String.format(US, "%.1f", 0.0));
-
-        framed = true;
-    }
-
-    boolean generateFor(List<Chunk> chunks, Kind kind, Color lineColor, boolean withMinMaxPctls) {
-        int cChunks = chunks.size();
-        dataSizeGb = (chunks.size() < 2) ? 0 : chunks.get(1).offsetMb * cChunks / 1024.0f;
-        pctls = buildPctls(chunks);
-
-        if( !prepared )
-            prepareFor(chunks);
-
-        if( !framed )
-            frame();
-
-        int ch = btm - top;
-        float minMaxRange = allMax - allMin;
-        float xScale = (right - left) / (float)cChunks;
-
-        if( xScale < 1.2 ) {
-            xScale = 1.0f;
-        }
-        else {
-            xScale = (int)(xScale * 10) / 10.0f;
-        }
-
-        Color o = Color.ORANGE;
-        Color clrMinMax = new Color(o.getRed(), o.getGreen(), o.getBlue(), 80);
-
-        switch( kind ) {
-            case Spread:
-                for( int x = 0, i = 0; i < chunks.size(); x++, i++ ) {
-                    Chunk c = chunks.get(i);
-                    int yTop = btm - (int)(ch * (c.max - allMin) / minMaxRange);
-                    int yTopA = btm - (int)(ch * (c.avgMax - allMin) / minMaxRange);
-                    int yMid = btm - (int)(ch * (c.avg - allMin) / minMaxRange);
-                    int yBtm = btm - (int)(ch * (c.min - allMin) / minMaxRange);
-                    int yBtmA = btm - (int)(ch * (c.avgMin - allMin) / minMaxRange);
-                    int sx = left + 1 + (int)(x * xScale);
-
-                    g.setColor(clrMinMax);
-                    g.drawLine(sx, yTop, sx, yBtm);
-
-                    g.setColor(Color.ORANGE);
-                    g.drawLine(sx, yTopA, sx, yBtmA);
-
-                    g.setColor(Color.RED);
-                    g.drawLine(sx, yMid - 3, sx, yMid + 3);
-                }
-                break;
-
-            case Line:
-                Path2D.Double path = null;
-
-                for( int x = 0, i = 0; i < chunks.size(); x++, i++ ) {
-                    Chunk c = chunks.get(i);
-                    int y = btm - (int)(ch * (c.avg - allMin) / minMaxRange);
-                    int sx = left + 1 + (int)(x * xScale);
-
-                    if( path == null ) {
-                        path = new Path2D.Double();
-                        path.moveTo(sx, y);
-                    }
-                    else {
-                        path.lineTo(sx, y);
-                    }
-                }
-
-                if( path != null ) {
-                    g.setColor(lineColor);
-                    g.setStroke(new BasicStroke(5, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-
-                    g.setStroke(defaultStroke);
-                    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                    g.draw(path);
-                    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-                    g.setStroke(defaultStroke);
-                }
-
-                break;
-        }
-
-        Stroke dotted = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{2}, 0);
-
-        g.setStroke(dotted);
-        for( int i = 1; i <= 10; i++ ) {
-            int xGb = left + (int)(i * cChunks / 10 * xScale);
-
-            g.setColor(Color.LIGHT_GRAY);
-            g.drawLine(xGb, top, xGb, btm);
-
-            double iGb = dataSizeGb * i / 10;
-            String label = String.format(US, "%.1f", iGb);
-            if( i == 10 )
-                label += " GB";
-            g.setColor(Color.DARK_GRAY);
-            drawLabel(g, xGb, btm, CENTER, TOP, label);
-        }
-        g.setStroke(defaultStroke);
-
-        // draw 3 most typical percentiles
-        Stroke dashed = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[] {9}, 0);
-        float _allMin = allMin;
-        BiConsumer<Float,Color> pctrlRenderer = (pctlValue, clr) -> {
-            int yMid = btm - (int)(ch * (pctlValue - allMin) / minMaxRange);
-            g.setColor(clr != null ? clr : Color.LIGHT_GRAY);
-            g.drawLine(left, yMid, right, yMid);
-
-            g.setColor(clr != null ? clr : Color.DARK_GRAY);
-            drawLabel(g, left - 4, yMid, RIGHT, CENTER, String.format(US, "%.1f", pctlValue));
-        };
-
-        g.setStroke(dashed);
-
-        Color pctlClr = lineColor;
-        List<Pctl> avgPctls = new ArrayList<>(pctls.avg);
-        float lastPctl = Float.MAX_VALUE;
-
-        avgPctls.sort(Comparator.comparing((Pctl pctl) -> pctl.value).reversed());
-        for( Pctl pctl : avgPctls ) {
-            if( pctl.weight > 3.3 ) {
-                float diffVsPrevPct = 100.0f * abs(pctl.value - lastPctl) / allMax;
-
-                if( diffVsPrevPct > 5 ) {
-                    lastPctl = pctl.value;
-                    pctrlRenderer.accept(pctl.value, pctlClr);
-                }
-            }
-            pctlClr = pctlClr.brighter();
-        }
-
-        if( withMinMaxPctls && (pctls.min != null) && (pctls.max != null) ) {
-            pctrlRenderer.accept(pctls.max.value, new Color(0, 196, 0));
-            pctrlRenderer.accept(pctls.min.value, new Color(196, 0, 0));
-        }
-
-        g.setStroke(defaultStroke);
-        return true;
-    }
-
-    void renderTestSummary(TestCase test) {
-        // output drive summary
-        int secAll = (int)(test.elapsedMs / 1000);
-        int elapsed = secAll;
-        int sec = elapsed % 60; elapsed = elapsed / 60;
-        int min = elapsed % 60; elapsed = elapsed / 60;
-        int hr = elapsed;
-
-        String contextSummary = String.format(US, "Free %s/%s GB, %s, data: %.1f GB, time: %d:%02d:%02d (%d sec)",
-                test.freeSpaceAtStart / GB, test.totalSpace / GB,
-                test.root.getAbsolutePath(), test.dataSizeGb,
-                hr, min, sec, secAll);
-
-        g.setColor(Color.RED);
-        addChartTitle(test.testKind, test.diskModel);
-
-        drawLabel(g,  left + 4, top - 32, LEFT,  BOTTOM, "SsdSlowMark v" + SsdSlowMark.ssmVersion);
-        drawLabel(g, right - 1, top - 16, RIGHT, BOTTOM,
-                "CPU: " + SsdSlowMark.si.cpuModel
-                + ", MB: " + SsdSlowMark.si.motherBoard);
-        drawLabel(g, right - 1, top - 32, RIGHT, BOTTOM,
-                "OS: " + SsdSlowMark.si.osVersion
-                + ", Java: " + SsdSlowMark.javaVersion);
-        drawLabel(g, right - 1, top - 48, RIGHT, BOTTOM, contextSummary);
-    }
-
-    void addLineMarker(int nLine, String lineMarker, Color lineColor) {
-        g.setColor(lineColor);
-        drawLabel(g, right - 4, top - 16 + nLine * 20, RIGHT, BOTTOM, lineMarker);
-    }
-
-    void addChartTitle(String testKind, String diskModel) {
-        drawLabel(g, left - 4, top - 16, RIGHT, BOTTOM, testKind);
-        drawLabel(g, left + 4, top - 16, LEFT, BOTTOM, diskModel);
-    }
-
-    private static void drawLabel(Graphics g, int x, int y, int xStick, int yStick, String label) {
-        FontMetrics fontMetrics = g.getFontMetrics();
-        int w = fontMetrics.stringWidth(label);
-        int h = fontMetrics.getHeight();
-
-        switch( xStick ) {
-            case CENTER: x -= (w / 2); break;
-            case RIGHT:  x -= w; break;
-        }
-
-        switch( yStick ) {
-            case CENTER: y += (h / 2); break;
-            case TOP:    y += h; break;
-        }
-
-        g.drawString(label, x, y);
-    }
-}
+package tools4free.ssm;
+
+import tools4free.ssm.ResultsWriter.Chunk;
+import tools4free.ssm.ResultsWriter.Pctl;
+import tools4free.ssm.ResultsWriter.Pctls;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static java.lang.Math.abs;
+import static java.util.Locale.US;
+import static javax.swing.SwingConstants.*;
+import static tools4free.ssm.ResultsWriter.buildPctls;
+import static tools4free.ssm.SsdSlowMark.GB;
+
+public class Chart {
+    Config config;
+    BufferedImage img;
+    Graphics2D g;
+    Stroke defaultStroke;
+
+    boolean prepared;
+    boolean framed;
+    Pctls pctls;
+    float dataSizeGb;
+    float timeSec;          // duration of the test when chunks are by time, X axis is in GB otherwise
+
+    int cMaxChunks;
+    float xScale;
+    float allMax = Float.MIN_VALUE;
+    float allMin = 0;
+
+    int w;
+    int h;
+    int top;
+    int left;
+    int btm;
+    int right;
+
+    enum Kind {
+        Spread,
+        Line
+    }
+
+    public Chart(Config config) {
+        this.config = config;
+    }
+
+    void prepareFor(List<Chunk> chunks) {
+        pctls = buildPctls(chunks);
+        int pad = config.ip;
+        w = config.iw;
+        h = config.ih;
+
+        allMax = Math.max(allMax, pctls.allMax);
+        allMin = Math.min(allMin, pctls.allMin);
+        top = pad;
+        left = pad;
+        btm = h - pad;
+        right = w - pad / 2;
+    }
+
+    void prepared() {
+        this.prepared = true;
+    }
+
+    void frame() {
+        img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        g = img.createGraphics();
+        defaultStroke = g.getStroke();
+
+        g.setColor(Color.white);
+        g.fillRect(0, 0, w, h);
+        g.setColor(Color.GRAY);
+        g.drawLine(left, top, left, btm);
+        g.drawLine(left, btm, right, btm);
+
+        g.setColor(Color.GRAY);
+        drawLabel(g, left - 4, top,  RIGHT, BOTTOM, "MB/s");
+        drawLabel(g, left - 4, top,  RIGHT,    TOP, String.format(US, "%.1f", allMax));
+        drawLabel(g, left - 4, btm,  RIGHT, BOTTOM, String.format(US, "%.1f", allMin));
+        drawLabel(g, left + 4, btm,   LEFT,    TOP, String.format(US, "%.1f", 0.0));
+
+        framed = true;
+    }
+
+    boolean generateFor(List<Chunk> chunks, Kind kind, Color lineColor, boolean withMinMaxPctls) {
+        int cChunks = chunks.size();
+        dataSizeGb = (chunks.size() < 2) ? 0 : chunks.get(1).offsetMb * cChunks / 1024.0f;
+        pctls = buildPctls(chunks);
+
+        if( !prepared )
+            prepareFor(chunks);
+
+        if( !framed )
+            frame();
+
+        int ch = btm - top;
+        float minMaxRange = allMax - allMin;
+        xScale = (right - left) / (float)cChunks;
+
+        if( xScale < 1.2 ) {
+            xScale = 1.0f;
+        }
+        else {
+            xScale = (int)(xScale * 10) / 10.0f;
+        }
+
+        Color o = Color.ORANGE;
+        Color clrMinMax = new Color(o.getRed(), o.getGreen(), o.getBlue(), 80);
+
+        switch( kind ) {
+            case Spread:
+                for( int x = 0, i = 0; i < chunks.size(); x++, i++ ) {
+                    Chunk c = chunks.get(i);
+                    int yTop = btm - (int)(ch * (c.max - allMin) / minMaxRange);
+                    int yTopA = btm - (int)(ch * (c.avgMax - allMin) / minMaxRange);
+                    int yMid = btm - (int)(ch * (c.avg - allMin) / minMaxRange);
+                    int yBtm = btm - (int)(ch * (c.min - allMin) / minMaxRange);
+                    int yBtmA = btm - (int)(ch * (c.avgMin - allMin) / minMaxRange);
+                    int sx = left + 1 + (int)(x * xScale);
+
+                    g.setColor(clrMinMax);
+                    g.drawLine(sx, yTop, sx, yBtm);
+
+                    g.setColor(Color.ORANGE);
+                    g.drawLine(sx, yTopA, sx, yBtmA);
+
+                    g.setColor(Color.RED);
+                    g.drawLine(sx, yMid - 3, sx, yMid + 3);
+                }
+
+                drawTimeLayers(chunks, xScale);
+                break;
+
+            case Line:
+                Path2D.Double path = null;
+
+                for( int x = 0, i = 0; i < chunks.size(); x++, i++ ) {
+                    Chunk c = chunks.get(i);
+                    int y = btm - (int)(ch * (c.avg - allMin) / minMaxRange);
+                    int sx = left + 1 + (int)(x * xScale);
+
+                    if( path == null ) {
+                        path = new Path2D.Double();
+                        path.moveTo(sx, y);
+                    }
+                    else {
+                        path.lineTo(sx, y);
+                    }
+                }
+
+                if( path != null ) {
+                    g.setColor(lineColor);
+                    g.setStroke(new BasicStroke(5, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+
+                    g.setStroke(defaultStroke);
+                    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    g.draw(path);
+                    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+                    g.setStroke(defaultStroke);
+                }
+
+                break;
+        }
+
+        Stroke dotted = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[]{2}, 0);
+
+        g.setStroke(dotted);
+        for( int i = 1; i <= 10; i++ ) {
+            int xGb = left + (int)(i * cChunks / 10 * xScale);
+
+            g.setColor(Color.LIGHT_GRAY);
+            g.drawLine(xGb, top, xGb, btm);
+
+            String label;
+            if( timeSec > 0 ) {
+                label = timeLabel(timeSec * i / 10, i == 10);
+            }
+            else {
+                double iGb = dataSizeGb * i / 10;
+                label = String.format(US, "%.1f", iGb);
+                if( i == 10 )
+                    label += " GB";
+            }
+            g.setColor(Color.DARK_GRAY);
+            drawLabel(g, xGb, btm, CENTER, TOP, label);
+        }
+        g.setStroke(defaultStroke);
+
+        // draw 3 most typical percentiles
+        Stroke dashed = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[] {9}, 0);
+        float _allMin = allMin;
+        BiConsumer<Float,Color> pctrlRenderer = (pctlValue, clr) -> {
+            int yMid = btm - (int)(ch * (pctlValue - allMin) / minMaxRange);
+            g.setColor(clr != null ? clr : Color.LIGHT_GRAY);
+            g.drawLine(left, yMid, right, yMid);
+
+            g.setColor(clr != null ? clr : Color.DARK_GRAY);
+            drawLabel(g, left - 4, yMid, RIGHT, CENTER, String.format(US, "%.1f", pctlValue));
+        };
+
+        g.setStroke(dashed);
+
+        Color pctlClr = lineColor;
+        List<Pctl> avgPctls = new ArrayList<>(pctls.avg);
+        float lastPctl = Float.MAX_VALUE;
+
+        avgPctls.sort(Comparator.comparing((Pctl pctl) -> pctl.value).reversed());
+        for( Pctl pctl : avgPctls ) {
+            if( pctl.weight > 3.3 ) {
+                float diffVsPrevPct = 100.0f * abs(pctl.value - lastPctl) / allMax;
+
+                if( diffVsPrevPct > 5 ) {
+                    lastPctl = pctl.value;
+                    pctrlRenderer.accept(pctl.value, pctlClr);
+                }
+            }
+            pctlClr = pctlClr.brighter();
+        }
+
+        if( withMinMaxPctls && (pctls.min != null) && (pctls.max != null) ) {
+            pctrlRenderer.accept(pctls.max.value, new Color(0, 196, 0));
+            pctrlRenderer.accept(pctls.min.value, new Color(196, 0, 0));
+        }
+
+        g.setStroke(defaultStroke);
+        return true;
+    }
+
+    /** Mean level of every plateau and a marker at every cliff between them */
+    void addCliffMarkers(Plateaus plateaus) {
+        int ch = btm - top;
+        float minMaxRange = allMax - allMin;
+        Stroke dashed = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0, new float[] {4}, 0);
+        Color clrCliff = new Color(0, 64, 196);
+
+        for( int i = 0; i < plateaus.list.size(); i++ ) {
+            Plateaus.Plateau p = plateaus.list.get(i);
+            int x1 = left + 1 + (int)(p.from * xScale);
+            int x2 = left + 1 + (int)(p.to * xScale);
+            int y = btm - (int)(ch * (p.perfMb - allMin) / minMaxRange);
+
+            g.setColor(clrCliff);
+            g.setStroke(new BasicStroke(2));
+            g.drawLine(x1, y, x2, y);
+
+            if( i > 0 ) {
+                g.setStroke(dashed);
+                g.drawLine(x1, top, x1, btm);
+                drawLabel(g, x1 + 2, top, LEFT, TOP, String.format(US, "%.1f GB", p.startGb));
+            }
+        }
+
+        g.setStroke(defaultStroke);
+    }
+
+    /**
+     * Drive temperature of every chunk as a line on own scale, labeled at the right edge.
+     * Drawn only when temperature was sampled.
+     */
+    void addTemperature(List<Chunk> chunks) {
+        float tMin = Float.MAX_VALUE, tMax = 0;
+
+        for( Chunk c : chunks ) {
+            if( c.tempC > 0 ) {
+                tMin = Math.min(tMin, c.tempC);
+                tMax = Math.max(tMax, c.tempC);
+            }
+        }
+
+        if( tMax <= 0 )
+            return;
+
+        tMin = (float)Math.floor(tMin / 10) * 10;
+        tMax = Math.max(tMin + 10, (float)Math.ceil(tMax / 10) * 10);
+
+        int ch = btm - top;
+        Color clrTemp = new Color(220, 100, 0);
+        Path2D.Double path = new Path2D.Double();
+        boolean started = false;
+
+        for( int x = 0, i = 0; i < chunks.size(); x++, i++ ) {
+            Chunk c = chunks.get(i);
+            if( c.tempC <= 0 )
+                continue;
+
+            int y = btm - (int)(ch * (c.tempC - tMin) / (tMax - tMin));
+            int sx = left + 1 + (int)(x * xScale);
+            if( started ) {
+                path.lineTo(sx, y);
+            }
+            else {
+                path.moveTo(sx, y);
+                started = true;
+            }
+        }
+
+        g.setColor(clrTemp);
+        g.setStroke(new BasicStroke(2));
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.draw(path);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setStroke(defaultStroke);
+
+        g.drawLine(right, top, right, btm);
+        drawLabel(g, right + 2, top, LEFT, BOTTOM, "C");
+        drawLabel(g, right + 2, top, LEFT, TOP, String.format(US, "%.0f", tMax));
+        drawLabel(g, right + 2, btm, LEFT, BOTTOM, String.format(US, "%.0f", tMin));
+    }
+
+    /**
+     * Time of block split into write call (submit) and sync (durability) as two stacked layers
+     * in the lower third of the chart, with own scale in ms. Drawn only for tests with syncs.
+     */
+    void drawTimeLayers(List<Chunk> chunks, float xScale) {
+        float msMax = 0;
+        boolean synced = false;
+
+        for( Chunk c : chunks ) {
+            msMax = Math.max(msMax, c.submitMs + c.syncMs);
+            synced |= c.syncMs > 0;
+        }
+
+        if( !synced || msMax <= 0 )
+            return;
+
+        int lh = (btm - top) / 3;
+        Color clrSubmit = new Color(0, 96, 255, 110);
+        Color clrSync = new Color(160, 0, 200, 110);
+
+        for( int x = 0, i = 0; i < chunks.size(); x++, i++ ) {
+            Chunk c = chunks.get(i);
+            int ySubmit = btm - (int)(lh * c.submitMs / msMax);
+            int ySync = ySubmit - (int)(lh * c.syncMs / msMax);
+            int sx = left + 1 + (int)(x * xScale);
+
+            g.setColor(clrSubmit);
+            g.drawLine(sx, btm - 1, sx, ySubmit);
+
+            g.setColor(clrSync);
+            g.drawLine(sx, ySubmit, sx, ySync);
+        }
+
+        g.setColor(new Color(0, 96, 255));
+        drawLabel(g, right - 4, btm - lh, RIGHT, BOTTOM, String.format(US, "write %.2f ms", msMax));
+        g.setColor(new Color(160, 0, 200));
+        drawLabel(g, right - 4, btm - lh, RIGHT, TOP, "sync");
+    }
+
+    void renderTestSummary(TestCase test) {
+        // output drive summary
+        int secAll = (int)(test.elapsedMs / 1000);
+        int elapsed = secAll;
+        int sec = elapsed % 60; elapsed = elapsed / 60;
+        int min = elapsed % 60; elapsed = elapsed / 60;
+        int hr = elapsed;
+
+        String contextSummary = String.format(US, "Free %s/%s GB, %s, data: %.1f GB, time: %d:%02d:%02d (%d sec)",
+                test.freeSpaceAtStart / GB, test.totalSpace / GB,
+                test.root.getAbsolutePath(), test.dataSizeGb,
+                hr, min, sec, secAll);
+
+        g.setColor(Color.RED);
+        addChartTitle(test.testKind, test.diskModel);
+
+        drawLabel(g,  left + 4, top - 32, LEFT,  BOTTOM, "SsdSlowMark v" + SsdSlowMark.ssmVersion);
+        drawLabel(g, right - 1, top - 16, RIGHT, BOTTOM,
+                "CPU: " + SsdSlowMark.si.cpuModel
+                + ", MB: " + SsdSlowMark.si.motherBoard);
+        drawLabel(g, right - 1, top - 32, RIGHT, BOTTOM,
+                "OS: " + SsdSlowMark.si.osVersion
+                + ", Java: " + SsdSlowMark.javaVersion);
+        drawLabel(g, right - 1, top - 48, RIGHT, BOTTOM, contextSummary);
+    }
+
+    void addLineMarker(int nLine, String lineMarker, Color lineColor) {
+        g.setColor(lineColor);
+        drawLabel(g, right - 4, top - 16 + nLine * 20, RIGHT, BOTTOM, lineMarker);
+    }
+
+    void addChartTitle(String testKind, String diskModel) {
+        drawLabel(g, left - 4, top - 16, RIGHT, BOTTOM, testKind);
+        drawLabel(g, left + 4, top - 16, LEFT, BOTTOM, diskModel);
+    }
+
+    /** Time at the X axis in units fitting the whole duration, with the unit at the last label */
+    private String timeLabel(float sec, boolean withUnit) {
+        if( timeSec >= 3 * 3600 )
+            return String.format(US, "%.1f", sec / 3600) + (withUnit ? " h" : "");
+        if( timeSec >= 3 * 60 )
+            return String.format(US, "%.1f", sec / 60) + (withUnit ? " min" : "");
+        return String.format(US, "%.1f", sec) + (withUnit ? " s" : "");
+    }
+
+    private static void drawLabel(Graphics g, int x, int y, int xStick, int yStick, String label) {
+        FontMetrics fontMetrics = g.getFontMetrics();
+        int w = fontMetrics.stringWidth(label);
+        int h = fontMetrics.getHeight();
+
+        switch( xStick ) {
+            case CENTER: x -= (w / 2); break;
+            case RIGHT:  x -= w; break;
+        }
+
+        switch( yStick ) {
+            case CENTER: y += (h / 2); break;
+            case TOP:    y += h; break;
+        }
+
+        g.drawString(label, x, y);
+    }
+}
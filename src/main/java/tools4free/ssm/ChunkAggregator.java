@@ -0,0 +1,288 @@
+package tools4free.ssm;
+
+import tools4free.ssm.ResultsWriter.Chunk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Builds chunks of consecutive blocks (min/avgMin/avg/avgMax/max) while blocks are added,
+ * so results are available at any moment and the report doesn't need another pass over blocks.
+ * Chunk width is derived from the expected number of blocks, when there are more blocks
+ * than expected neighbour chunks are merged pairwise and the width doubles.
+ * Every chunk also gets its achieved rate (data over wall time from the end of the previous chunk)
+ * and latency percentiles, approximated once chunks are merged.
+ * Memory doesn't grow with the chunk width: min, max and average of a chunk are exact, while avgMin,
+ * avgMax and latency percentiles come from up to {@link #SAMPLES} blocks of the chunk sampled uniformly
+ * (all of them in narrower chunks).
+ * Drive temperature, when sampled, is the highest sample taken while the chunk was filled
+ * or the last one before it.
+ */
+public class ChunkAggregator {
+    static final int SAMPLES = 1024;
+
+    final int maxChunks;
+    final float blockSizeMb;
+
+    long chunkWidth = 1;
+    List<Acc> done = new ArrayList<>();
+    float[] current = new float[SAMPLES];           // sample of blocks of the current chunk, reservoir
+    float[] currentLatencyMs = new float[SAMPLES];
+    long cCurrent;
+    float currentMin;
+    float currentMax;
+    double currentSum;
+    float currentLatMaxMs;
+    double currentSubmitNs;
+    double currentSyncNs;
+    long currentStartNs;
+    long lastFinishedNs;
+    float currentTempC;
+    float lastTempC;
+    long cBlocks;
+
+    ChunkAggregator(int maxChunks, float blockSizeMb) {
+        // even, so chunks always merge pairwise
+        this.maxChunks = Math.max(2, maxChunks & ~1);
+        this.blockSizeMb = blockSizeMb;
+    }
+
+    /** Sets chunk width for the expected number of blocks, only before the first block */
+    void expect(long cExpected) {
+        if( cBlocks > 0 )
+            return;
+
+        chunkWidth = Math.max(1, (cExpected + maxChunks - 1) / maxChunks);
+    }
+
+    void add(float perf) {
+        add(perf, 0, 0, 0, 0);
+    }
+
+    /**
+     * Adds block with its time split into submit (write call) and durability (sync) parts,
+     * its latency and the time it finished at, ns.
+     */
+    void add(float perf, long submitNs, long syncNs, long latencyNs, long finishedNs) {
+        if( cCurrent == 0 && done.size() >= maxChunks )
+            mergePairs();
+
+        if( cCurrent == 0 ) {
+            currentStartNs = (cBlocks == 0) ? finishedNs - latencyNs : lastFinishedNs;
+            currentTempC = lastTempC;
+            currentMin = currentMax = perf;
+            currentSum = 0;
+            currentLatMaxMs = 0;
+        }
+
+        // reservoir sampling, every block of the chunk ends up in the sample with the same probability
+        long slot = (cCurrent < SAMPLES) ? cCurrent : ThreadLocalRandom.current().nextLong(cCurrent + 1);
+        if( slot < SAMPLES ) {
+            current[(int)slot] = perf;
+            currentLatencyMs[(int)slot] = latencyNs / 1e6f;
+        }
+
+        cCurrent++;
+        currentMin = Math.min(currentMin, perf);
+        currentMax = Math.max(currentMax, perf);
+        currentSum += perf;
+        currentLatMaxMs = Math.max(currentLatMaxMs, latencyNs / 1e6f);
+        currentSubmitNs += submitNs;
+        currentSyncNs += syncNs;
+        lastFinishedNs = Math.max(lastFinishedNs, finishedNs);
+        cBlocks++;
+
+        if( cCurrent == chunkWidth ) {
+            done.add(currentAcc());
+            cCurrent = 0;
+            currentSubmitNs = currentSyncNs = 0;
+        }
+    }
+
+    /** Sampled drive temperature, C */
+    void temperature(float tempC) {
+        lastTempC = tempC;
+        currentTempC = Math.max(currentTempC, tempC);
+    }
+
+    private Acc currentAcc() {
+        int cSampled = (int)Math.min(cCurrent, SAMPLES);
+        Acc acc = Acc.of(current, cSampled);
+
+        // blocks below/above average are counted in the sample, scaled to the whole chunk
+        if( cCurrent > cSampled ) {
+            double scale = cCurrent / (double)cSampled;
+            acc.sumMin *= scale;
+            acc.cMin = Math.round(acc.cMin * scale);
+            acc.sumMax *= scale;
+            acc.cMax = Math.round(acc.cMax * scale);
+        }
+
+        acc.count = cCurrent;
+        acc.min = currentMin;
+        acc.max = currentMax;
+        acc.sum = currentSum;
+        acc.sumSubmitNs = currentSubmitNs;
+        acc.sumSyncNs = currentSyncNs;
+        acc.startNs = currentStartNs;
+        acc.endNs = lastFinishedNs;
+        acc.maxTempC = currentTempC;
+        acc.setLatencies(currentLatencyMs, cSampled);
+        acc.latMaxMs = currentLatMaxMs;
+        return acc;
+    }
+
+    private void mergePairs() {
+        List<Acc> merged = new ArrayList<>(maxChunks);
+        for( int i = 0; i < done.size(); i += 2 ) {
+            merged.add(done.get(i).merge(done.get(i + 1)));
+        }
+
+        done = merged;
+        chunkWidth *= 2;
+    }
+
+    /** Chunks of all blocks added so far, the last one can be incomplete */
+    List<Chunk> chunks() {
+        List<Chunk> chunks = new ArrayList<>(done.size() + 1);
+        float offsetMb = 0;
+
+        for( Acc acc : done ) {
+            chunks.add(acc.toChunk(offsetMb, blockSizeMb));
+            offsetMb += blockSizeMb * chunkWidth;
+        }
+
+        if( cCurrent > 0 )
+            chunks.add(currentAcc().toChunk(offsetMb, blockSizeMb));
+
+        return chunks;
+    }
+
+    /** Running statistics of one chunk */
+    static class Acc {
+        long count;
+        float min;
+        float max;
+        double sum;
+        double sumMin;
+        long cMin;
+        double sumMax;
+        long cMax;
+        double sumSubmitNs;
+        double sumSyncNs;
+        long startNs;
+        long endNs;
+        float latP50Ms;
+        float latP99Ms;
+        float latMaxMs;
+        float maxTempC;
+
+        static Acc of(float[] blocks, int cBlocks) {
+            Acc acc = new Acc();
+            float min, max;
+            double sum;
+
+            min = max = blocks[0];
+            sum = 0;
+            for( int j = 0; j < cBlocks; j++ ) {
+                float perf = blocks[j];
+                min = Math.min(min, perf);
+                max = Math.max(max, perf);
+                sum += perf;
+            }
+
+            float avg = (float)(sum / cBlocks);
+            for( int j = 0; j < cBlocks; j++ ) {
+                float perf = blocks[j];
+                if( perf > avg ) {
+                    acc.sumMax += perf;
+                    acc.cMax++;
+                }
+                if( perf < avg ) {
+                    acc.sumMin += perf;
+                    acc.cMin++;
+                }
+            }
+
+            acc.count = cBlocks;
+            acc.min = min;
+            acc.max = max;
+            acc.sum = sum;
+            return acc;
+        }
+
+        void setLatencies(float[] latencyMs, int cBlocks) {
+            float[] sorted = Arrays.copyOf(latencyMs, cBlocks);
+            Arrays.sort(sorted);
+
+            latP50Ms = sorted[rank(50, cBlocks)];
+            latP99Ms = sorted[rank(99, cBlocks)];
+            latMaxMs = sorted[cBlocks - 1];
+        }
+
+        private static int rank(int pctl, int cBlocks) {
+            return Math.max(0, (int)Math.ceil(pctl / 100.0 * cBlocks) - 1);
+        }
+
+        /**
+         * Combined chunk, avgMin/avgMax are approximated by blocks below/above average
+         * of every part. Parts with all blocks equal (e.g. single block) have no such blocks
+         * and count wholly to the side of the combined average they are on.
+         * Latency p50 is approximated by the weighted mean of both parts, p99 by the higher one.
+         */
+        Acc merge(Acc next) {
+            Acc acc = new Acc();
+            acc.count = count + next.count;
+            acc.min = Math.min(min, next.min);
+            acc.max = Math.max(max, next.max);
+            acc.sum = sum + next.sum;
+            acc.sumSubmitNs = sumSubmitNs + next.sumSubmitNs;
+            acc.sumSyncNs = sumSyncNs + next.sumSyncNs;
+            acc.startNs = startNs;
+            acc.endNs = next.endNs;
+            acc.latP50Ms = (float)(((double)latP50Ms * count + (double)next.latP50Ms * next.count) / acc.count);
+            acc.latP99Ms = Math.max(latP99Ms, next.latP99Ms);
+            acc.latMaxMs = Math.max(latMaxMs, next.latMaxMs);
+            acc.maxTempC = Math.max(maxTempC, next.maxTempC);
+
+            double avg = acc.sum / acc.count;
+            acc.addSides(this, avg);
+            acc.addSides(next, avg);
+            return acc;
+        }
+
+        private void addSides(Acc part, double avg) {
+            if( part.cMin > 0 || part.cMax > 0 ) {
+                sumMin += part.sumMin;
+                cMin += part.cMin;
+                sumMax += part.sumMax;
+                cMax += part.cMax;
+            }
+            else if( part.sum / part.count < avg ) {
+                sumMin += part.sum;
+                cMin += part.count;
+            }
+            else if( part.sum / part.count > avg ) {
+                sumMax += part.sum;
+                cMax += part.count;
+            }
+        }
+
+        Chunk toChunk(float offsetMb, float blockSizeMb) {
+            float avg = (float)(sum / count);
+            float avgMin = (cMin == 0) ? avg : (float)(sumMin / cMin);
+            float avgMax = (cMax == 0) ? avg : (float)(sumMax / cMax);
+            Chunk chunk = new Chunk(offsetMb, min, avgMin, avg, avgMax, max);
+            chunk.submitMs = (float)(sumSubmitNs / count / 1e6);
+            chunk.syncMs = (float)(sumSyncNs / count / 1e6);
+            chunk.rateMb = (endNs > startNs) ? (float)(count * blockSizeMb / ((endNs - startNs) / 1e9)) : 0;
+            chunk.latP50Ms = latP50Ms;
+            chunk.latP99Ms = latP99Ms;
+            chunk.latMaxMs = latMaxMs;
+            chunk.tempC = maxTempC;
+            return chunk;
+        }
+    }
+}
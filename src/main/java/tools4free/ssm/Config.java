@@ -1,62 +1,266 @@
-package tools4free.ssm;
-
-class Config {
-    String test  = "rw";        // r | w | rw
-    int bs       = 8 * 1024;    // KB, block size
-    int fs       = 1 * 1024;    // MB, size of one output file
-    int fc       = 50;          // number of generated files
-    String out   = "_data";     // directory to generate output files
-    String in    = "_data";     // directory to read input file
-
-    String rpt   = "./";        // base name for output folder
-    int    iw    = 800;         // px, width of the output image
-    int    ih    = 600;         // px, height of the output image
-    int    ip    = 60;          // px, padding of the image
-
-    Config fromArgs(String[] args) {
-        for( String arg : args ) {
-            int pos = arg.indexOf('=');
-            if( pos == -1 )
-                SsdSlowMark.exit(1, "Invalid arg: " + arg);
-
-            String name = arg.substring(0, pos);
-            String value = arg.substring(pos + 1);
-
-            switch( name ) {
-                case "test":    test = value; break;
-                case "bs":      bs = Integer.parseInt(value); break;
-                case "fs":      fs = Integer.parseInt(value); break;
-                case "fc":      fc = Integer.parseInt(value); break;
-                case "out":     out = value; break;
-                case "in":      in = value; break;
-
-                case "rpt":     rpt = value; break;
-                case "iw":      iw = Integer.parseInt(value); break;
-                case "ih":      ih = Integer.parseInt(value); break;
-                case "ip":      ip = Integer.parseInt(value); break;
-
-                default:        SsdSlowMark.exit(1, "Unsupported arg: " + value);
-            }
-        }
-
-        if( bs < 4 || bs > (1024 * 1024) )
-            SsdSlowMark.exit(1, "Invalid bs: " + bs);
-
-        if( fs < 1 || fs > (32 * 1024) )
-            SsdSlowMark.exit(1, "Invalid fs: " + fs);
-
-        if( fc < 1 || fc > (10000) )
-            SsdSlowMark.exit(1, "Invalid fc: " + fc);
-
-        switch( test ) {
-            case "r":
-            case "rw":
-            case "w":
-            case "agg":
-                break;
-            default:    SsdSlowMark.exit(1, "Unsupported test: " + test);
-        }
-
-        return this;
-    }
-}
+package tools4free.ssm;
+
+import java.util.Arrays;
+
+class Config {
+    String test  = "rw";        // r | w | rw | randr | randw | randrw | mixed | recovery | agg
+    int bs       = 8 * 1024;    // KB, block size
+    int fs       = 1 * 1024;    // MB, size of one output file
+    int fc       = 50;          // number of generated files
+    String out   = "_data";     // directory to generate output files
+    String in    = "_data";     // directory to read input file
+    String engine = "stream";   // stream | channel, I/O engine
+    boolean direct = false;     // bypass OS page cache (O_DIRECT), channel engine only
+    int qd       = 1;           // queue depth, block operations in flight per file
+    int jobs     = 1;           // number of files written/read in parallel
+    long ops     = 0;           // number of random block operations, 0 - as many as blocks in the files
+    String sync  = "block";     // block | file | dsync | none | <KB>, when written data is synced to disk
+    String data  = "repeat";    // repeat | zero | random | compressible:<ratio>, content of written blocks
+    int prefill  = 0;           // number of threads generating random data ahead of writes, 0 - writers do it
+    String alloc = "append";    // append | prealloc | sparse | overwrite, how written files get their space
+    String until = "limits";    // limits | steady, write test stops at fc/fs limits or once throughput is steady
+    int stol     = 10;          // %, tolerance of throughput in steady state
+    int swin     = 60;          // sec, window throughput must stay within tolerance for steady state
+    String idle  = "10,60,300"; // sec, idle intervals of test=recovery
+    int rmix     = 70;          // %, share of reads among block operations of test=mixed
+    float rate   = 0;           // MB/s, paced rate of block operations, 0 - as fast as possible
+    int iops     = 0;           // paced block operations per second, 0 - as fast as possible
+    boolean jfr  = false;       // emit JFR events of block I/O, files and test phases, see JfrEvents
+    int tl       = 1000;        // ms, interval of the timeline (Timeline.csv and chart by time), 0 - none
+    boolean blocks = false;     // record every block with its time to Blocks.csv of the report, spilled to a temp file while running
+    int temp     = 1000;        // ms, interval of drive temperature samples (Linux hwmon), 0 - none
+    int dstat    = 1000;        // ms, interval of /proc/diskstats samples of the tested device (Linux), 0 - none
+    String http  = "";          // [host:]port of live metrics endpoint (Prometheus), localhost if no host, none if empty
+
+    String rpt   = "./";        // base name for output folder
+    int    iw    = 800;         // px, width of the output image
+    int    ih    = 600;         // px, height of the output image
+    int    ip    = 60;          // px, padding of the image
+
+    long syncBytes;             // bytes written to a file between syncs with sync=<KB>, 0 with other policies
+
+    Config fromArgs(String[] args) {
+        for( String arg : args ) {
+            int pos = arg.indexOf('=');
+            if( pos == -1 )
+                SsdSlowMark.exit(1, "Invalid arg: " + arg);
+
+            String name = arg.substring(0, pos);
+            String value = arg.substring(pos + 1);
+
+            switch( name ) {
+                case "test":    test = value; break;
+                case "bs":      bs = Integer.parseInt(value); break;
+                case "fs":      fs = Integer.parseInt(value); break;
+                case "fc":      fc = Integer.parseInt(value); break;
+                case "out":     out = value; break;
+                case "in":      in = value; break;
+                case "engine":  engine = value; break;
+                case "direct":  direct = parseFlag(name, value); break;
+                case "qd":      qd = Integer.parseInt(value); break;
+                case "jobs":    jobs = Integer.parseInt(value); break;
+                case "ops":     ops = Long.parseLong(value); break;
+                case "sync":    sync = value; break;
+                case "data":    data = value; break;
+                case "prefill": prefill = Integer.parseInt(value); break;
+                case "alloc":   alloc = value; break;
+                case "until":   until = value; break;
+                case "stol":    stol = Integer.parseInt(value); break;
+                case "swin":    swin = Integer.parseInt(value); break;
+                case "idle":    idle = value; break;
+                case "rmix":    rmix = Integer.parseInt(value); break;
+                case "rate":    rate = Float.parseFloat(value); break;
+                case "iops":    iops = Integer.parseInt(value); break;
+                case "jfr":     jfr = parseFlag(name, value); break;
+                case "tl":      tl = Integer.parseInt(value); break;
+                case "blocks":  blocks = parseFlag(name, value); break;
+                case "temp":    temp = Integer.parseInt(value); break;
+                case "dstat":   dstat = Integer.parseInt(value); break;
+                case "http":    http = value; break;
+
+                case "rpt":     rpt = value; break;
+                case "iw":      iw = Integer.parseInt(value); break;
+                case "ih":      ih = Integer.parseInt(value); break;
+                case "ip":      ip = Integer.parseInt(value); break;
+
+                default:        SsdSlowMark.exit(1, "Unsupported arg: " + value);
+            }
+        }
+
+        if( bs < 4 || bs > (1024 * 1024) )
+            SsdSlowMark.exit(1, "Invalid bs: " + bs);
+
+        if( fs < 1 || fs > (32 * 1024) )
+            SsdSlowMark.exit(1, "Invalid fs: " + fs);
+
+        if( fc < 1 || fc > (10000) )
+            SsdSlowMark.exit(1, "Invalid fc: " + fc);
+
+        switch( engine ) {
+            case "stream":
+            case "channel":
+                break;
+            default:    SsdSlowMark.exit(1, "Unsupported engine: " + engine);
+        }
+
+        if( direct && !"channel".equals(engine) )
+            SsdSlowMark.exit(1, "direct=true requires engine=channel");
+
+        if( qd < 1 || qd > 256 )
+            SsdSlowMark.exit(1, "Invalid qd: " + qd);
+
+        if( qd > 1 && !"channel".equals(engine) )
+            SsdSlowMark.exit(1, "qd > 1 requires engine=channel");
+
+        if( jobs < 1 || jobs > 256 )
+            SsdSlowMark.exit(1, "Invalid jobs: " + jobs);
+
+        switch( test ) {
+            case "r":
+            case "rw":
+            case "w":
+            case "randr":
+            case "randrw":
+            case "randw":
+            case "mixed":
+            case "recovery":
+            case "agg":
+                break;
+            default:    SsdSlowMark.exit(1, "Unsupported test: " + test);
+        }
+
+        // files are shared by all jobs, positional I/O of the stream engine is not thread-safe
+        if( (isRandom() || isMixed()) && !"channel".equals(engine) )
+            SsdSlowMark.exit(1, "test=" + test + " requires engine=channel");
+
+        // rewrites after idle are compared with the plateaus of the fill, both run one block at a time
+        if( isRecovery() && (qd > 1 || jobs > 1) )
+            SsdSlowMark.exit(1, "test=recovery requires qd=1 and jobs=1");
+
+        if( !idle.matches("[0-9]+(,[0-9]+)*") )
+            SsdSlowMark.exit(1, "Invalid idle: " + idle);
+
+        if( ops < 0 )
+            SsdSlowMark.exit(1, "Invalid ops: " + ops);
+
+        switch( sync ) {
+            case "block":
+            case "file":
+            case "none":
+                break;
+            case "dsync":
+                if( !"channel".equals(engine) )
+                    SsdSlowMark.exit(1, "sync=dsync requires engine=channel");
+                break;
+            default:
+                if( !sync.matches("[0-9]{1,9}") || Long.parseLong(sync) < 1 )
+                    SsdSlowMark.exit(1, "Unsupported sync: " + sync);
+                syncBytes = Long.parseLong(sync) * SsdSlowMark.KB;
+        }
+
+        switch( data ) {
+            case "repeat":
+            case "zero":
+            case "random":
+                break;
+            default:
+                if( !data.matches("compressible:[0-9]+(\\.[0-9]+)?") || Float.parseFloat(data.substring(13)) < 1 )
+                    SsdSlowMark.exit(1, "Unsupported data: " + data);
+        }
+
+        if( prefill < 0 || prefill > 64 )
+            SsdSlowMark.exit(1, "Invalid prefill: " + prefill);
+
+        switch( alloc ) {
+            case "append":
+                break;
+            case "prealloc":
+            case "sparse":
+            case "overwrite":
+                break;
+            default:    SsdSlowMark.exit(1, "Unsupported alloc: " + alloc);
+        }
+
+        if( !"limits".equals(until) && !"steady".equals(until) )
+            SsdSlowMark.exit(1, "Unsupported until: " + until);
+
+        // only the sequential writer follows steady state
+        if( "steady".equals(until) && !"w".equals(test) && !"rw".equals(test) )
+            SsdSlowMark.exit(1, "until=steady requires test=w or test=rw");
+
+        if( stol < 1 || stol > 100 )
+            SsdSlowMark.exit(1, "Invalid stol: " + stol);
+
+        if( swin < 2 || swin > 3600 )
+            SsdSlowMark.exit(1, "Invalid swin: " + swin);
+
+        if( rmix < 0 || rmix > 100 )
+            SsdSlowMark.exit(1, "Invalid rmix: " + rmix);
+
+        if( rate < 0 )
+            SsdSlowMark.exit(1, "Invalid rate: " + rate);
+
+        if( iops < 0 )
+            SsdSlowMark.exit(1, "Invalid iops: " + iops);
+
+        if( tl != 0 && tl < 10 )
+            SsdSlowMark.exit(1, "Invalid tl: " + tl);
+
+        if( temp < 0 )
+            SsdSlowMark.exit(1, "Invalid temp: " + temp);
+
+        if( dstat < 0 )
+            SsdSlowMark.exit(1, "Invalid dstat: " + dstat);
+
+        if( !http.isEmpty() && !http.matches("([^:]+:)?[0-9]{1,5}") )
+            SsdSlowMark.exit(1, "Invalid http: " + http);
+
+        return this;
+    }
+
+    /** Value of a true/false option, anything else is rejected rather than taken as false */
+    private static boolean parseFlag(String name, String value) {
+        if( !"true".equals(value) && !"false".equals(value) )
+            SsdSlowMark.exit(1, "Invalid " + name + ": " + value + ", expected true or false");
+        return "true".equals(value);
+    }
+
+    boolean isRandom() {
+        return test.startsWith("rand");
+    }
+
+    boolean isMixed() {
+        return "mixed".equals(test);
+    }
+
+    boolean isRecovery() {
+        return "recovery".equals(test);
+    }
+
+    boolean isWrite() {
+        return isRecovery() || isMixed() || !"agg".equals(test) && test.replace("rand", "").contains("w");
+    }
+
+    boolean isRead() {
+        return !isRecovery() && !"agg".equals(test) && test.replace("rand", "").contains("r");
+    }
+
+    int[] idleSecs() {
+        return Arrays.stream(idle.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * Whether a block is followed by sync, by bytes written to its file since the previous sync
+     * including the block: every block, or once enough bytes are written.
+     */
+    boolean isSyncDue(long unsynced) {
+        if( syncBytes > 0 )
+            return unsynced >= syncBytes;
+        return "block".equals(sync);
+    }
+
+    /** Whether data left unsynced is synced once the file is done, with sync=file or sync=<KB> */
+    boolean isSyncAtEnd() {
+        return "file".equals(sync) || syncBytes > 0;
+    }
+}
@@ -0,0 +1,129 @@
+package tools4free.ssm;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Content of written blocks according to {@code config.data}:
+ * <ul>
+ *     <li>repeat - the same random content in every block</li>
+ *     <li>zero - all zeros</li>
+ *     <li>random - fresh random content in every block, nothing to dedupe or compress</li>
+ *     <li>compressible:R - fresh random content in 1/R of every 4 KB, the rest is zeros</li>
+ * </ul>
+ * Fresh content is made by xorshift seeded from the sequence number of the block,
+ * so any thread may fill blocks without shared state. With {@code config.prefill > 0}
+ * blocks are filled ahead by background threads, off the path of the writer.
+ */
+public class DataGenerator implements Closeable {
+    static final int SEGMENT = 4 * SsdSlowMark.KB;
+
+    final boolean fresh;
+    final boolean zero;
+    final int randomBytes;      // per segment
+    final AtomicLong seq = new AtomicLong(System.nanoTime());
+
+    BlockingQueue<ByteBuffer> ready;
+    BlockingQueue<ByteBuffer> free;
+    Thread[] fillers = new Thread[0];
+    volatile boolean closed;
+
+    /**
+     * @param allocator buffers of the I/O engine, used for blocks filled in background
+     * @param cInFlight max number of blocks writers take at once
+     */
+    DataGenerator(Config config, IntFunction<ByteBuffer> allocator, int cInFlight) {
+        String mode = config.data;
+        float ratio = mode.startsWith("compressible:") ? Float.parseFloat(mode.substring(mode.indexOf(':') + 1)) : 1;
+
+        fresh = mode.equals("random") || mode.startsWith("compressible:");
+        zero = mode.equals("zero");
+        randomBytes = Math.max(8, (int)(SEGMENT / ratio) & ~7);
+
+        if( fresh && config.prefill > 0 ) {
+            int blockSize = config.bs * SsdSlowMark.KB;
+            int cBuffers = cInFlight + config.prefill * 2;
+
+            ready = new ArrayBlockingQueue<>(cBuffers);
+            free = new ArrayBlockingQueue<>(cBuffers);
+            for( int i = 0; i < cBuffers; i++ ) {
+                free.add(allocator.apply(blockSize));
+            }
+
+            fillers = new Thread[config.prefill];
+            for( int i = 0; i < fillers.length; i++ ) {
+                fillers[i] = new Thread(this::prefill, "data-prefill-" + i);
+                fillers[i].setDaemon(true);
+                fillers[i].start();
+            }
+        }
+    }
+
+    /** Initial content of a newly allocated buffer */
+    void init(ByteBuffer data) {
+        if( !zero )
+            fill(data);
+    }
+
+    /**
+     * Buffer with content for the next block, either {@code own} buffer refilled
+     * or one filled in background, which is to be given back by {@link #release(ByteBuffer)}.
+     */
+    ByteBuffer next(ByteBuffer own) throws InterruptedException {
+        if( !fresh )
+            return own;
+
+        if( ready != null )
+            return ready.take();
+
+        fill(own);
+        return own;
+    }
+
+    void release(ByteBuffer data) {
+        if( ready != null && data != null )
+            free.offer(data);
+    }
+
+    private void prefill() {
+        try {
+            while( !closed ) {
+                ByteBuffer data = free.take();
+                fill(data);
+                ready.put(data);
+            }
+        }
+        catch( InterruptedException e ) {
+            // closed
+        }
+    }
+
+    /** Fills the whole buffer, random part of every segment only, the rest keeps zeros */
+    void fill(ByteBuffer data) {
+        long x = seq.getAndIncrement() * 0x9E3779B97F4A7C15L;
+        int size = data.capacity() & ~7;
+
+        x = (x ^ (x >>> 31)) | 1;
+        for( int seg = 0; seg < size; seg += SEGMENT ) {
+            int end = Math.min(size, seg + randomBytes);
+            for( int i = seg; i < end; i += 8 ) {
+                x ^= x << 13;
+                x ^= x >>> 7;
+                x ^= x << 17;
+                data.putLong(i, x);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for( Thread filler : fillers ) {
+            filler.interrupt();
+        }
+    }
+}
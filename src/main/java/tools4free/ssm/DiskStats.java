@@ -0,0 +1,159 @@
+package tools4free.ssm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Samples kernel statistics of the tested block device from {@code /proc/diskstats} every
+ * {@code config.dstat} ms while the test runs, together with throughput of the test itself,
+ * so stalls can be told apart: I/O in flight and time in queue grow when the device stalls,
+ * while the test stalling with an idle device points to the file system.
+ */
+public class DiskStats {
+    static final Path DISKSTATS = Paths.get("/proc/diskstats");
+    static final int SECTOR = 512;
+    static final int STOP_TIMEOUT_MS = 1000;
+
+    final BlockDevice device;
+    final int intervalMs;
+    final LiveMetrics live;
+    final List<Sample> samples = new ArrayList<>();
+
+    private Thread thread;
+    private volatile boolean stopped;
+
+    /** Differences between two readings of the device counters, per second where it's a rate */
+    static class Sample {
+        float sec;              // since the sampler started
+        float testMb;           // throughput of the test, MB/s
+        float readsPerSec;
+        float writesPerSec;
+        float readMb;
+        float writeMb;
+        float readMergesPerSec;
+        float writeMergesPerSec;
+        float readAwaitMs;      // average time of a completed read, queue included
+        float writeAwaitMs;
+        float queueSize;        // average number of requests in queue or in service
+        int inFlight;
+        float utilPct;          // share of time the device was busy
+    }
+
+    DiskStats(BlockDevice device, int intervalMs, LiveMetrics live) {
+        this.device = device;
+        this.intervalMs = intervalMs;
+        this.live = live;
+    }
+
+    /** Sampler started for the device of the test, null when disabled or not available */
+    static DiskStats start(TestCase test, BlockDevice device) {
+        if( test.config.dstat <= 0 || device == null || !Files.isReadable(DISKSTATS) )
+            return null;
+
+        if( read(device.name) == null )
+            return null;
+
+        DiskStats stats = new DiskStats(device, test.config.dstat, test.live);
+        stats.thread = new Thread(stats::run, test.getName() + "-diskstats");
+        stats.thread.setDaemon(true);
+        stats.thread.start();
+        return stats;
+    }
+
+    void stop() {
+        stopped = true;
+        thread.interrupt();
+        try {
+            thread.join(STOP_TIMEOUT_MS);
+        }
+        catch( InterruptedException e ) {
+            // leave it
+        }
+    }
+
+    private void run() {
+        long startNs = System.nanoTime();
+        long prevNs = startNs;
+        long prevBytes = live.bytes.sum();
+        long[] prev = read(device.name);
+
+        while( !stopped && prev != null ) {
+            try {
+                Thread.sleep(intervalMs);
+            }
+            catch( InterruptedException e ) {
+                break;
+            }
+
+            long now = System.nanoTime();
+            long bytes = live.bytes.sum();
+            long[] cur = read(device.name);
+            if( cur == null )
+                break;
+
+            synchronized( samples ) {
+                samples.add(sample(prev, cur, (now - startNs) / 1e9, (now - prevNs) / 1e9, bytes - prevBytes));
+            }
+            prev = cur;
+            prevNs = now;
+            prevBytes = bytes;
+        }
+    }
+
+    private static Sample sample(long[] prev, long[] cur, double sec, double dt, long testBytes) {
+        Sample s = new Sample();
+        long reads = cur[0] - prev[0];
+        long writes = cur[4] - prev[4];
+
+        s.sec = (float)sec;
+        s.testMb = (float)(testBytes / dt / SsdSlowMark.MB);
+        s.readsPerSec = (float)(reads / dt);
+        s.writesPerSec = (float)(writes / dt);
+        s.readMergesPerSec = (float)((cur[1] - prev[1]) / dt);
+        s.writeMergesPerSec = (float)((cur[5] - prev[5]) / dt);
+        s.readMb = (float)((cur[2] - prev[2]) * SECTOR / dt / SsdSlowMark.MB);
+        s.writeMb = (float)((cur[6] - prev[6]) * SECTOR / dt / SsdSlowMark.MB);
+        s.readAwaitMs = (reads == 0) ? 0 : (float)(cur[3] - prev[3]) / reads;
+        s.writeAwaitMs = (writes == 0) ? 0 : (float)(cur[7] - prev[7]) / writes;
+        s.inFlight = (int)cur[8];
+        s.utilPct = (float)Math.min(100, (cur[9] - prev[9]) / (dt * 10));
+        s.queueSize = (float)((cur[10] - prev[10]) / (dt * 1000));
+        return s;
+    }
+
+    /**
+     * Counters of the device from /proc/diskstats: reads, reads merged, sectors read, ms reading,
+     * writes, writes merged, sectors written, ms writing, I/Os in flight, ms doing I/O, weighted ms.
+     */
+    static long[] read(String name) {
+        try {
+            for( String line : Files.readAllLines(DISKSTATS, UTF_8) ) {
+                String[] fields = line.trim().split("\\s+");
+                if( fields.length < 14 || !fields[2].equals(name) )
+                    continue;
+
+                long[] counters = new long[11];
+                for( int i = 0; i < counters.length; i++ ) {
+                    counters[i] = Long.parseLong(fields[3 + i]);
+                }
+                return counters;
+            }
+        }
+        catch( IOException | NumberFormatException e ) {
+            // no stats
+        }
+        return null;
+    }
+
+    List<Sample> samples() {
+        synchronized( samples ) {
+            return new ArrayList<>(samples);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package tools4free.ssm;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Samples temperature of the tested drive from Linux hwmon every {@code config.temp} ms while
+ * the test runs. Every sample is kept with time and data done so far, and goes to the chunk
+ * being filled, so a cliff can be matched with the temperature at which it happened.
+ */
+public class DriveTemp {
+    static final int STOP_TIMEOUT_MS = 1000;
+
+    final Path input;
+    final int intervalMs;
+    final TestCase test;
+    final List<Sample> samples = new ArrayList<>();
+
+    private Thread thread;
+    private volatile boolean stopped;
+
+    static class Sample {
+        float sec;              // since the sampler started
+        float gb;               // data done by the test
+        float tempC;
+    }
+
+    DriveTemp(Path input, int intervalMs, TestCase test) {
+        this.input = input;
+        this.intervalMs = intervalMs;
+        this.test = test;
+    }
+
+    /** Sampler started for the drive of the test, null when disabled or the drive has no sensor */
+    static DriveTemp start(TestCase test, BlockDevice device) {
+        if( test.config.temp <= 0 || device == null )
+            return null;
+
+        Path input = device.temperatureInput();
+        if( input == null || Float.isNaN(read(input)) )
+            return null;
+
+        DriveTemp temp = new DriveTemp(input, test.config.temp, test);
+        temp.thread = new Thread(temp::run, test.getName() + "-temp");
+        temp.thread.setDaemon(true);
+        temp.thread.start();
+        return temp;
+    }
+
+    void stop() {
+        stopped = true;
+        thread.interrupt();
+        try {
+            thread.join(STOP_TIMEOUT_MS);
+        }
+        catch( InterruptedException e ) {
+            // leave it
+        }
+    }
+
+    private void run() {
+        long startNs = System.nanoTime();
+
+        while( !stopped ) {
+            float tempC = read(input);
+            if( Float.isNaN(tempC) )
+                break;
+
+            Sample s = new Sample();
+            s.sec = (System.nanoTime() - startNs) / SsdSlowMark.NANO_SEC;
+            s.gb = (float)test.live.bytes.sum() / SsdSlowMark.GB;
+            s.tempC = tempC;
+            synchronized( samples ) {
+                samples.add(s);
+            }
+            if( stopped )
+                break;
+            test.addTemperature(tempC);
+
+            try {
+                Thread.sleep(intervalMs);
+            }
+            catch( InterruptedException e ) {
+                break;
+            }
+        }
+    }
+
+    /** Temperature in C, NaN if it can't be read */
+    static float read(Path input) {
+        try {
+            List<String> lines = Files.readAllLines(input, UTF_8);
+            return lines.isEmpty() ? Float.NaN : Long.parseLong(lines.get(0).trim()) / 1000f;
+        }
+        catch( IOException | NumberFormatException e ) {
+            return Float.NaN;
+        }
+    }
+
+    List<Sample> samples() {
+        synchronized( samples ) {
+            return new ArrayList<>(samples);
+        }
+    }
+
+    float maxC() {
+        float max = 0;
+        for( Sample s : samples() ) {
+            max = Math.max(max, s.tempC);
+        }
+        return max;
+    }
+}
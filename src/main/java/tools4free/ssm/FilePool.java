@@ -0,0 +1,120 @@
+package tools4free.ssm;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Files of a random test opened on demand, at most {@link #MAX_OPEN} at a time, so a set of thousands
+ * of files doesn't run out of file descriptors. When the limit is reached, the least recently used file
+ * no block operation is working on is closed to open another one, after data left unsynced is synced
+ * according to {@code config.sync}.
+ */
+public class FilePool implements Closeable {
+    static final int MAX_OPEN = 256;
+
+    final TestCase test;
+    final List<File> files;
+    final boolean write;
+    final int maxOpen;
+    final LinkedHashMap<Integer, Entry> open = new LinkedHashMap<>(16, 0.75f, true);
+
+    static class Entry {
+        final IoEngine io;
+        int users;                      // block operations working on the file
+
+        Entry(IoEngine io) {
+            this.io = io;
+        }
+    }
+
+    FilePool(TestCase test, List<File> files, boolean write) {
+        this(test, files, write, MAX_OPEN);
+    }
+
+    FilePool(TestCase test, List<File> files, boolean write, int maxOpen) {
+        this.test = test;
+        this.files = files;
+        this.write = write;
+        this.maxOpen = maxOpen;
+    }
+
+    /** Engine of the n-th file opened for reads, or for updates in place when written, until {@link #release} */
+    IoEngine acquire(int n) throws IOException {
+        IoEngine idle = null;
+        Entry entry;
+
+        synchronized( this ) {
+            while( (entry = open.get(n)) == null && open.size() >= maxOpen && (idle = removeIdle()) == null ) {
+                try {
+                    wait();
+                }
+                catch( InterruptedException e ) {
+                    throw new InterruptedIOException("Interrupted waiting for a file to close");
+                }
+            }
+
+            if( entry == null ) {
+                IoEngine io = IoEngine.create(test.config, test.root);
+                entry = new Entry(write ? io.openUpdate(files.get(n)) : io.openRead(files.get(n)));
+                open.put(n, entry);
+            }
+            entry.users++;
+        }
+
+        // nobody else sees the evicted file any more, its sync doesn't hold up other operations
+        if( idle != null )
+            syncAndClose(idle);
+
+        return entry.io;
+    }
+
+    synchronized void release(int n) {
+        open.get(n).users--;
+        notifyAll();
+    }
+
+    /** Least recently used file with no operation working on it, removed from open ones, null if all are busy */
+    private IoEngine removeIdle() {
+        for( Iterator<Map.Entry<Integer, Entry>> it = open.entrySet().iterator(); it.hasNext(); ) {
+            Entry entry = it.next().getValue();
+            if( entry.users == 0 ) {
+                it.remove();
+                return entry.io;
+            }
+        }
+        return null;
+    }
+
+    private void syncAndClose(IoEngine io) throws IOException {
+        try( IoEngine closed = io ) {
+            if( write )
+                test.syncFile(closed);
+        }
+    }
+
+    /** Syncs data left unsynced in files still open, once all block operations are done */
+    synchronized void syncAll() throws IOException {
+        for( Entry entry : open.values() ) {
+            test.syncFile(entry.io);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for( Entry entry : open.values() ) {
+            try {
+                entry.io.close();
+            }
+            catch( IOException e ) {
+                // ignore
+            }
+        }
+        open.clear();
+    }
+}
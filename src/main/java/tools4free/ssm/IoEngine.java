@@ -0,0 +1,65 @@
+package tools4free.ssm;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Block I/O backend used by writer and reader tests. One instance serves one
+ * file at a time: open it with {@link #openWrite(File)} or {@link #openRead(File)},
+ * transfer whole blocks and close it.
+ */
+public abstract class IoEngine implements Closeable {
+    final static int PAGE = 4 * 1024;
+
+    Config config;
+    File root;
+    File file;
+    long unsynced;          // bytes written since the previous sync, guarded by the engine, see TestCase.writeBlock
+
+    IoEngine(Config config, File root) {
+        this.config = config;
+        this.root = root;
+    }
+
+    /** Engine of {@code config.engine}, emitting JFR events with {@code config.jfr} */
+    static IoEngine create(Config config, File root) {
+        IoEngine engine;
+        switch( config.engine ) {
+            case "stream":  engine = new StreamIoEngine(config, root); break;
+            case "channel": engine = new ChannelIoEngine(config, root); break;
+            default:        throw new IllegalArgumentException("Unsupported engine: " + config.engine);
+        }
+        return config.jfr ? new JfrIoEngine(engine) : engine;
+    }
+
+    /** Buffer suitable for {@link #write} and {@link #read} of this engine */
+    abstract ByteBuffer allocate(int size);
+
+    abstract IoEngine openWrite(File file) throws IOException;
+
+    abstract IoEngine openRead(File file) throws IOException;
+
+    /** Opens existing file for reading and writing in place, without truncation */
+    abstract IoEngine openUpdate(File file) throws IOException;
+
+    /** Writes whole buffer at given position of the file */
+    abstract void write(ByteBuffer data, long pos) throws IOException;
+
+    /** Reads whole buffer from given position, returns number of bytes read or -1 at EOF */
+    abstract int read(ByteBuffer data, long pos) throws IOException;
+
+    /** Flushes written data down to the device */
+    abstract void sync() throws IOException;
+
+    @Override
+    public abstract void close() throws IOException;
+
+    static ByteBuffer allocateAligned(int size, int align) {
+        int capacity = (size + align - 1) / align * align;
+        ByteBuffer aligned = ByteBuffer.allocateDirect(capacity + align).alignedSlice(align);
+        aligned.limit(size);
+        return aligned.slice();
+    }
+}
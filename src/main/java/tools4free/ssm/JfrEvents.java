@@ -0,0 +1,84 @@
+package tools4free.ssm;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events of the tool with {@code jfr=true}, so a latency spike can be matched
+ * with GC pauses and safepoints of the same recording. Events only go to a recording started with
+ * {@code -XX:StartFlightRecording} or by JMC. Duration of an event is the time the operation took.
+ */
+public class JfrEvents {
+
+    @Name("tools4free.ssm.Block")
+    @Label("Block I/O")
+    @Category({ "SsdSlowMark", "I/O" })
+    @Description("Write or read of one block")
+    static class Block extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("File")
+        String file;
+
+        @Label("Offset")
+        @DataAmount(DataAmount.BYTES)
+        long offset;
+
+        @Label("Size")
+        @DataAmount(DataAmount.BYTES)
+        long size;
+    }
+
+    @Name("tools4free.ssm.File")
+    @Label("File Operation")
+    @Category({ "SsdSlowMark", "I/O" })
+    @Description("Open, sync or close of a tested file")
+    static class FileOp extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("File")
+        String file;
+    }
+
+    @Name("tools4free.ssm.Phase")
+    @Label("Test Phase")
+    @Category({ "SsdSlowMark" })
+    @Description("Phase of a test, e.g. preparing files, running or writing the report")
+    static class Phase extends Event {
+        @Label("Test")
+        String test;
+
+        @Label("Phase")
+        String phase;
+    }
+
+    /** Started phase event, null with events disabled */
+    static Phase phase(Config config, String test, String phase) {
+        if( !config.jfr )
+            return null;
+
+        Phase event = new Phase();
+        event.test = test;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    static void end(Phase event) {
+        if( event != null )
+            event.commit();
+    }
+
+    /** Tells how to get the events when they are enabled but there is no recording to get them */
+    static void checkRecording(Config config) {
+        if( config.jfr && FlightRecorder.getFlightRecorder().getRecordings().isEmpty() )
+            SsdSlowMark.echoLn("JFR: no recording running, start with -XX:StartFlightRecording=filename=ssm.jfr");
+    }
+}
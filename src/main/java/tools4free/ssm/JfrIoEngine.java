@@ -0,0 +1,100 @@
+package tools4free.ssm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Engine emitting {@link JfrEvents} around every operation of the engine it wraps. Used only
+ * with {@code jfr=true}, otherwise tests work with the wrapped engine directly.
+ */
+public class JfrIoEngine extends IoEngine {
+    final IoEngine engine;
+
+    JfrIoEngine(IoEngine engine) {
+        super(engine.config, engine.root);
+        this.engine = engine;
+    }
+
+    @Override
+    ByteBuffer allocate(int size) {
+        return engine.allocate(size);
+    }
+
+    @Override
+    IoEngine openWrite(File file) throws IOException {
+        JfrEvents.FileOp event = fileOp("open write", file);
+        engine.openWrite(file);
+        return opened(event, file);
+    }
+
+    @Override
+    IoEngine openRead(File file) throws IOException {
+        JfrEvents.FileOp event = fileOp("open read", file);
+        engine.openRead(file);
+        return opened(event, file);
+    }
+
+    @Override
+    IoEngine openUpdate(File file) throws IOException {
+        JfrEvents.FileOp event = fileOp("open update", file);
+        engine.openUpdate(file);
+        return opened(event, file);
+    }
+
+    @Override
+    void write(ByteBuffer data, long pos) throws IOException {
+        JfrEvents.Block event = new JfrEvents.Block();
+        event.begin();
+        engine.write(data, pos);
+        commit(event, "write", pos, data.capacity());
+    }
+
+    @Override
+    int read(ByteBuffer data, long pos) throws IOException {
+        JfrEvents.Block event = new JfrEvents.Block();
+        event.begin();
+        int read = engine.read(data, pos);
+        commit(event, "read", pos, Math.max(0, read));
+        return read;
+    }
+
+    @Override
+    void sync() throws IOException {
+        JfrEvents.FileOp event = fileOp("sync", file);
+        engine.sync();
+        event.commit();
+    }
+
+    @Override
+    public void close() throws IOException {
+        JfrEvents.FileOp event = fileOp("close", file);
+        engine.close();
+        event.commit();
+    }
+
+    private static JfrEvents.FileOp fileOp(String operation, File file) {
+        JfrEvents.FileOp event = new JfrEvents.FileOp();
+        event.operation = operation;
+        event.file = (file == null) ? null : file.getPath();
+        event.begin();
+        return event;
+    }
+
+    private IoEngine opened(JfrEvents.FileOp event, File file) {
+        this.file = file;
+        event.commit();
+        return this;
+    }
+
+    private void commit(JfrEvents.Block event, String operation, long pos, long size) {
+        event.end();
+        if( event.shouldCommit() ) {
+            event.operation = operation;
+            event.file = (file == null) ? null : file.getPath();
+            event.offset = pos;
+            event.size = size;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package tools4free.ssm;
+
+import java.util.Arrays;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Fixed-memory log-linear histogram of latencies in nanoseconds (HdrHistogram-style).
+ * Values below 256 ns are counted exactly, above that every power of two is split
+ * into 128 linear buckets, so any value is kept with relative error below 0.8%.
+ * Recording doesn't allocate.
+ */
+public class LatencyHistogram {
+    final static int SUB_BITS = 8;
+    final static int SUB_COUNT = 1 << SUB_BITS;
+    final static int HALF_COUNT = SUB_COUNT / 2;
+    final static long MAX_VALUE = (1L << 40) - 1;    // ~18 minutes
+
+    final long[] counts = new long[indexOf(MAX_VALUE) + 1];
+    long total;
+    long min = Long.MAX_VALUE;
+    long max;
+
+    void record(long ns) {
+        ns = min(MAX_VALUE, max(0, ns));
+        counts[indexOf(ns)]++;
+        total++;
+        min = min(min, ns);
+        max = max(max, ns);
+    }
+
+    void add(LatencyHistogram other) {
+        for( int i = 0; i < counts.length; i++ ) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        min = min(min, other.min);
+        max = max(max, other.max);
+    }
+
+    void reset() {
+        Arrays.fill(counts, 0);
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /** Value in ns at or below which {@code pctl} percent of recorded values are */
+    long percentile(double pctl) {
+        if( total == 0 )
+            return 0;
+
+        long rank = max(1, (long)Math.ceil(pctl / 100 * total));
+        long seen = 0;
+        for( int i = 0; i < counts.length; i++ ) {
+            seen += counts[i];
+            if( seen >= rank )
+                return min(max, highestOf(i));
+        }
+        return max;
+    }
+
+    static int indexOf(long ns) {
+        if( ns < SUB_COUNT )
+            return (int)ns;
+
+        int shift = 63 - Long.numberOfLeadingZeros(ns) - (SUB_BITS - 1);
+        return HALF_COUNT * shift + (int)(ns >>> shift);
+    }
+
+    /** Highest value counted in the bucket */
+    static long highestOf(int index) {
+        if( index < SUB_COUNT )
+            return index;
+
+        int shift = index / HALF_COUNT - 1;
+        long sub = index - (long)HALF_COUNT * shift;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,63 @@
+package tools4free.ssm;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a running test for {@link MetricsServer}, updated by worker threads without locks
+ * and read at any moment. All values are cumulative since the start of the test, rates and latency
+ * quantiles over a window are left to the scraper (rate() and histogram_quantile() of Prometheus),
+ * so any number of scrapers see consistent values.
+ */
+public class LiveMetrics {
+    /** Upper bounds of latency buckets, seconds, the last bucket (+Inf) is implicit */
+    static final double[] BUCKETS = {
+        0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    static final long[] BUCKETS_NS = Arrays.stream(BUCKETS).mapToLong(sec -> (long)(sec * 1e9)).toArray();
+
+    final LongAdder bytes = new LongAdder();
+    final LongAdder ops = new LongAdder();
+    final LongAdder latencyNs = new LongAdder();
+    final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS.length + 1);
+    volatile File file;                 // file the test works on, the directory for random tests
+
+    /** State of the counters at the moment of the snapshot */
+    static class Snapshot {
+        long bytes;
+        long ops;
+        long latencyNs;
+        long[] buckets;                 // cumulative, operations with latency up to the bound, +Inf last
+    }
+
+    void add(long bytes, long latencyNs) {
+        this.bytes.add(bytes);
+        this.ops.increment();
+        this.latencyNs.add(latencyNs);
+        latencyBuckets.incrementAndGet(bucketOf(latencyNs));
+    }
+
+    /** Bucket of the latency, bounds are inclusive as {@code le} of Prometheus */
+    static int bucketOf(long latencyNs) {
+        int n = Arrays.binarySearch(BUCKETS_NS, latencyNs);
+        return (n >= 0) ? n : -n - 1;
+    }
+
+    Snapshot snapshot() {
+        Snapshot now = new Snapshot();
+        now.bytes = bytes.sum();
+        now.ops = ops.sum();
+        now.latencyNs = latencyNs.sum();
+        now.buckets = new long[latencyBuckets.length()];
+
+        long count = 0;
+        for( int i = 0; i < now.buckets.length; i++ ) {
+            count += latencyBuckets.get(i);
+            now.buckets[i] = count;
+        }
+
+        return now;
+    }
+}
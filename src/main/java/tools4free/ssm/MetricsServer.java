@@ -0,0 +1,134 @@
+package tools4free.ssm;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.Formatter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Locale.US;
+
+/**
+ * Live metrics of running tests in Prometheus text format at {@code /metrics}, with {@code http=[host:]port}.
+ * Bound to localhost unless the host is given. Counters and the latency histogram cover the whole test,
+ * e.g. throughput is {@code rate(ssm_bytes_total[1m])} and p99 latency is
+ * {@code histogram_quantile(0.99, rate(ssm_latency_seconds_bucket[1m]))}.
+ */
+public class MetricsServer {
+    final HttpServer server;
+    final TestCase[] tests;
+
+    MetricsServer(Config config, TestCase... tests) throws IOException {
+        int pos = config.http.lastIndexOf(':');
+        String host = (pos < 0) ? "localhost" : config.http.substring(0, pos);
+        int port = Integer.parseInt(config.http.substring(pos + 1));
+
+        this.tests = tests;
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", this::handle);
+    }
+
+    static MetricsServer start(Config config, TestCase... tests) {
+        try {
+            MetricsServer metrics = new MetricsServer(config, tests);
+            metrics.server.start();
+            SsdSlowMark.echoLn("Metrics: http://%s:%s/metrics", metrics.server.getAddress().getHostString(),
+                               metrics.server.getAddress().getPort());
+            return metrics;
+        }
+        catch( Exception e ) {
+            SsdSlowMark.exit(1, "Failed to start metrics endpoint at " + config.http + ": " + e);
+            return null;
+        }
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = metrics().getBytes(UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try( OutputStream os = exchange.getResponseBody() ) {
+            os.write(body);
+        }
+    }
+
+    String metrics() {
+        StringBuilder str = new StringBuilder();
+        Formatter fmt = new Formatter(str, US);
+        LiveMetrics.Snapshot[] snapshots = new LiveMetrics.Snapshot[tests.length];
+
+        for( int i = 0; i < tests.length; i++ ) {
+            if( tests[i] != null )
+                snapshots[i] = tests[i].live.snapshot();
+        }
+
+        header(str, "ssm_bytes_total", "counter", "Bytes done by block operations of the test");
+        for( int i = 0; i < tests.length; i++ ) {
+            if( tests[i] != null )
+                fmt.format("ssm_bytes_total{test=\"%s\"} %s\n", tests[i].testKind, snapshots[i].bytes);
+        }
+
+        header(str, "ssm_ops_total", "counter", "Block operations done by the test");
+        for( int i = 0; i < tests.length; i++ ) {
+            if( tests[i] != null )
+                fmt.format("ssm_ops_total{test=\"%s\"} %s\n", tests[i].testKind, snapshots[i].ops);
+        }
+
+        header(str, "ssm_latency_seconds", "histogram", "Latency of block operations");
+        for( int i = 0; i < tests.length; i++ ) {
+            if( tests[i] == null )
+                continue;
+
+            long[] buckets = snapshots[i].buckets;
+            for( int b = 0; b < LiveMetrics.BUCKETS.length; b++ ) {
+                fmt.format("ssm_latency_seconds_bucket{test=\"%s\",le=\"%s\"} %s\n",
+                           tests[i].testKind, BigDecimal.valueOf(LiveMetrics.BUCKETS[b]).stripTrailingZeros().toPlainString(), buckets[b]);
+            }
+            // count is taken from the buckets, so it matches +Inf while blocks are being added
+            fmt.format("ssm_latency_seconds_bucket{test=\"%s\",le=\"+Inf\"} %s\n", tests[i].testKind, buckets[buckets.length - 1]);
+            fmt.format("ssm_latency_seconds_sum{test=\"%s\"} %.9f\n", tests[i].testKind, snapshots[i].latencyNs / 1e9);
+            fmt.format("ssm_latency_seconds_count{test=\"%s\"} %s\n", tests[i].testKind, buckets[buckets.length - 1]);
+        }
+
+        header(str, "ssm_free_bytes", "gauge", "Free space of the test directory");
+        for( TestCase test : tests ) {
+            if( test != null && test.root != null )
+                fmt.format("ssm_free_bytes{test=\"%s\",dir=\"%s\"} %s\n",
+                           test.testKind, escape(test.root.getAbsolutePath()), test.root.getFreeSpace());
+        }
+
+        header(str, "ssm_file_info", "gauge", "File the test is working on");
+        for( TestCase test : tests ) {
+            File file = (test != null) ? test.live.file : null;
+            if( file != null )
+                fmt.format("ssm_file_info{test=\"%s\",file=\"%s\"} 1\n", test.testKind, escape(file.getAbsolutePath()));
+        }
+
+        header(str, "ssm_running", "gauge", "Whether the test is running, 0 once finished");
+        for( TestCase test : tests ) {
+            if( test != null )
+                fmt.format("ssm_running{test=\"%s\"} %s\n", test.testKind, test.finished ? 0 : 1);
+        }
+
+        return str.toString();
+    }
+
+    private static void header(StringBuilder str, String name, String type, String help) {
+        str.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        str.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /** Label value with backslash, quote and line feed escaped */
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
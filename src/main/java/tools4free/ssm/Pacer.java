@@ -0,0 +1,55 @@
+package tools4free.ssm;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop pacing of block operations at {@code config.rate} MB/s or {@code config.iops},
+ * whichever is slower, shared by all jobs and queued operations of the test.
+ * Operation N is due at a fixed point of the schedule no matter how long earlier operations took,
+ * and its latency is counted from that point rather than from its actual start.
+ * So a stall of the drive counts for every operation that was due meanwhile,
+ * and the tail latency is not hidden by the stalled load generator (coordinated omission).
+ */
+public class Pacer {
+    static final long SPIN_NS = 50_000;     // short waits are spun, parking overshoots them
+
+    final long intervalNs;
+    final long startNs = System.nanoTime();
+    final AtomicLong seq = new AtomicLong();
+
+    Pacer(long intervalNs) {
+        this.intervalNs = intervalNs;
+    }
+
+    /** Pacer for the configured rate, null when operations run as fast as possible */
+    static Pacer of(Config config) {
+        double interval = 0;
+
+        if( config.rate > 0 )
+            interval = config.bs * (double)SsdSlowMark.KB / SsdSlowMark.MB / config.rate * 1e9;
+        if( config.iops > 0 )
+            interval = Math.max(interval, 1e9 / config.iops);
+
+        return (interval > 0) ? new Pacer(Math.max(1, (long)interval)) : null;
+    }
+
+    /** Waits until the next operation is due, returns the time it was due at */
+    long await() {
+        long due = startNs + seq.getAndIncrement() * intervalNs;
+
+        for( long left; (left = due - System.nanoTime()) > 0; ) {
+            if( left > SPIN_NS )
+                LockSupport.parkNanos(left - SPIN_NS);
+            else
+                Thread.onSpinWait();
+        }
+
+        return due;
+    }
+
+    /** Target rate, MB/s */
+    float rateMb(Config config) {
+        return (float)(config.bs * (double)SsdSlowMark.KB / SsdSlowMark.MB / (intervalNs / 1e9));
+    }
+}
@@ -0,0 +1,176 @@
+package tools4free.ssm;
+
+import tools4free.ssm.ResultsWriter.Chunk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Locale.US;
+
+/**
+ * Performance plateaus of the chunk series and cliffs between them, e.g. fast while SLC cache lasts,
+ * then much slower. Change points are found by binary segmentation of chunk averages: a segment is
+ * split where it reduces squared error most, as long as the reduction is well above the noise
+ * of the series and both sides are at least {@link #MIN_LENGTH} of the series long. Neighbour
+ * segments are then merged while their levels differ by less than {@link #MIN_STEP} or by less than
+ * {@link #Z} standard errors of the difference, so spikes of a short noisy run don't make plateaus.
+ */
+public class Plateaus {
+    static final float MIN_STEP = 0.1f;     // of the faster side
+    static final double Z = 4;              // standard errors of the difference of levels a step must exceed
+    static final double PENALTY = 8;        // of noise variance times log of the number of chunks, per split
+    static final int MIN_LENGTH = 20;       // shortest plateau is 1/MIN_LENGTH of the series
+    static final int MIN_CHUNKS = 4;        // and at least this many chunks
+
+    final List<Plateau> list = new ArrayList<>();
+
+    static class Plateau {
+        int from;           // first chunk
+        int to;             // after the last chunk
+        float startGb;
+        float lengthGb;
+        float perfMb;
+    }
+
+    private double[] sum;
+    private double[] sumSq;
+    private double penalty;
+    private int minLength;
+
+    static Plateaus of(List<Chunk> chunks) {
+        Plateaus plateaus = new Plateaus();
+        int n = chunks.size();
+        if( n == 0 )
+            return plateaus;
+
+        plateaus.sum = new double[n + 1];
+        plateaus.sumSq = new double[n + 1];
+        for( int i = 0; i < n; i++ ) {
+            double avg = chunks.get(i).avg;
+            plateaus.sum[i + 1] = plateaus.sum[i] + avg;
+            plateaus.sumSq[i + 1] = plateaus.sumSq[i] + avg * avg;
+        }
+
+        // noise from differences of neighbour chunks, robust to the steps themselves
+        double[] diffs = new double[Math.max(1, n - 1)];
+        for( int i = 1; i < n; i++ ) {
+            diffs[i - 1] = Math.abs(chunks.get(i).avg - chunks.get(i - 1).avg);
+        }
+        Arrays.sort(diffs);
+        double sigma = diffs[diffs.length / 2] / (0.6745 * Math.sqrt(2));
+
+        plateaus.penalty = PENALTY * sigma * sigma * Math.log(n + 1);
+        plateaus.minLength = Math.max(MIN_CHUNKS, n / MIN_LENGTH);
+
+        List<int[]> segments = new ArrayList<>();
+        plateaus.split(0, n, segments);
+        segments.sort((a, b) -> Integer.compare(a[0], b[0]));
+        plateaus.mergeSameLevel(segments);
+
+        float chunkMb = (n < 2) ? 0 : chunks.get(1).offsetMb - chunks.get(0).offsetMb;
+        for( int[] seg : segments ) {
+            Plateau p = new Plateau();
+            p.from = seg[0];
+            p.to = seg[1];
+            p.perfMb = (float)plateaus.mean(seg[0], seg[1]);
+            p.startGb = chunks.get(p.from).offsetMb / 1024;
+            float endMb = (p.to < n) ? chunks.get(p.to).offsetMb : chunks.get(n - 1).offsetMb + chunkMb;
+            p.lengthGb = endMb / 1024 - p.startGb;
+            plateaus.list.add(p);
+        }
+
+        return plateaus;
+    }
+
+    /**
+     * Merges neighbour segments whose levels are not distinct, the least distinct pair first,
+     * as the level of a merged segment changes how it compares with its other neighbour.
+     */
+    private void mergeSameLevel(List<int[]> segments) {
+        while( segments.size() > 1 ) {
+            int best = -1;
+            double bestScore = 1;
+
+            for( int i = 0; i + 1 < segments.size(); i++ ) {
+                int[] a = segments.get(i), b = segments.get(i + 1);
+                double score = stepScore(a[0], a[1], b[1]);
+                if( score < bestScore ) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+
+            if( best < 0 )
+                return;
+
+            segments.get(best)[1] = segments.remove(best + 1)[1];
+        }
+    }
+
+    /**
+     * Step between segments [from, k) and [k, to) over the smallest step taken as real,
+     * below 1 both are the same level: the step is below {@link #MIN_STEP} or within the noise.
+     */
+    private double stepScore(int from, int k, int to) {
+        double a = mean(from, k), b = mean(k, to);
+        double se = Math.sqrt(variance(from, k) / (k - from) + variance(k, to) / (to - k));
+        double minStep = Math.max(Math.max(a, b) * MIN_STEP, Z * se);
+        return (minStep <= 0) ? Double.MAX_VALUE : Math.abs(a - b) / minStep;
+    }
+
+    private void split(int from, int to, List<int[]> segments) {
+        int best = -1;
+        double bestGain = penalty;
+        double cost = cost(from, to);
+
+        for( int k = from + minLength; k <= to - minLength; k++ ) {
+            double gain = cost - cost(from, k) - cost(k, to);
+            if( gain > bestGain && stepScore(from, k, to) >= 1 ) {
+                bestGain = gain;
+                best = k;
+            }
+        }
+
+        if( best < 0 ) {
+            segments.add(new int[] { from, to });
+            return;
+        }
+
+        split(from, best, segments);
+        split(best, to, segments);
+    }
+
+    private double mean(int from, int to) {
+        return (sum[to] - sum[from]) / (to - from);
+    }
+
+    /** Squared error of the segment around its mean */
+    private double cost(int from, int to) {
+        double s = sum[to] - sum[from];
+        return (sumSq[to] - sumSq[from]) - s * s / (to - from);
+    }
+
+    /** Sample variance of chunk averages of the segment */
+    private double variance(int from, int to) {
+        return (to - from < 2) ? 0 : Math.max(0, cost(from, to)) / (to - from - 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        Plateau prev = null;
+
+        for( Plateau p : list ) {
+            if( prev != null ) {
+                str.append(String.format(US, "    cliff: %.1f GB, %.1f -> %.1f MB/s\n",
+                                         p.startGb, prev.perfMb, p.perfMb));
+            }
+            str.append(String.format(US, "  plateau: %.1f GB for %.1f GB, %.1f MB/s\n",
+                                     p.startGb, p.lengthGb, p.perfMb));
+            prev = p;
+        }
+
+        return str.toString();
+    }
+}
@@ -1,166 +1,274 @@
-package tools4free.ssm;
-
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
-import java.text.ParseException;
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static tools4free.ssm.ResultsWriter.*;
-import static tools4free.ssm.SsdSlowMark.echoLn;
-
-public class ResultsAggregator {
-    Config config;
-
-    static final Pattern FN_PATTERN = Pattern.compile("^(?<model>.*)_\\((?<testKind>.*)\\)_*(?<output>[^.]*).csv$");
-    public final static DecimalFormat FLOAT_FORMATTER = (DecimalFormat)NumberFormat.getInstance(Locale.US);
-
-    public ResultsAggregator(Config config) {
-        this.config = config;
-    }
-
-    public void run() {
-        File in = new File(config.in);
-        File out = new File(config.out);
-        Map<String,StringBuilder> averages = new HashMap<>();
-
-        echoLn("Running aggregation in " + in);
-        File[] files = in.listFiles();
-        if( files == null )
-            return;
-
-        for( File file : files ) {
-            if( file.isDirectory() )
-                continue;
-
-            Matcher m = FN_PATTERN.matcher(file.getName());
-            if( !m.matches() )
-                continue;
-
-            String model = m.group("model");
-            String test = m.group("testKind");
-            String output = m.group("output");
-            switch( output ) {
-                case "Chunks":
-                    break;
-
-                case "Average": {
-                    File chunksFile = new File(file.getAbsolutePath().replace("Average.", "Chunks."));
-                    buildAverage(model, chunksFile);
-                    addAverage(averages, test, file);
-                    break;
-                }
-            }
-        }
-
-        for( Map.Entry<String, StringBuilder> e : averages.entrySet() ) {
-            Path outFile = out.toPath().resolve("All-" + e.getKey() + ".csv");
-            byte[] outText = e.getValue().toString().getBytes(UTF_8);
-
-            try {
-                Files.write(outFile, outText);
-            }
-            catch( IOException ex ) {
-                echoLn("Failed to write %s: %s", outFile, ex.getMessage());
-            }
-        }
-    }
-
-    private void addAverage(Map<String, StringBuilder> averages, String test, File file) {
-        try {
-            List<String> lines = Files.readAllLines(file.toPath(), UTF_8);
-            StringBuilder avg = averages.computeIfAbsent(test, key -> {
-                StringBuilder sb = new StringBuilder(10000);
-                sb.append(lines.get(0)).append('\n');
-                return sb;
-            });
-
-            avg.append(lines.get(1)).append('\n');
-        }
-        catch( IOException e ) {
-            echoLn("Failed to read %s: %s", file, e.getMessage());
-        }
-    }
-
-    static final Pattern COMMA = Pattern.compile(",");
-
-    private void buildAverage(String diskModel, File file) {
-        try {
-            List<String> lines = Files.readAllLines(file.toPath(), UTF_8);
-            List<Chunk> chunks = new ArrayList<>(lines.size());
-
-            for( int i = 1; i < lines.size(); i++ ) {
-                String line = lines.get(i);
-                String[] c = COMMA.split(line);
-                Chunk chunk = new Chunk(f(c[1]), f(c[2]), f(c[3]), f(c[4]), f(c[5]), f(c[6]));
-                chunks.add(chunk);
-            }
-
-            String avgFileName = file.getName().replace("Chunks", "Average");
-            File avgFile = new File(file.getParent(), avgFileName);
-
-            ResultsWriter.buildAverage(diskModel, avgFile, chunks);
-        }
-        catch( Exception e ) {
-            echoLn("Failed to read %s: %s", file, e.getMessage());
-        }
-    }
-
-    public static Map<String,TestAverages> loadAverages(File rptDir) {
-        File[] files = rptDir.listFiles();
-        if( files == null )
-            return Collections.emptyMap();
-
-        Map<String,TestAverages> averages = new HashMap<>();
-
-        for( File file : files ) {
-            if( file.isDirectory() )
-                continue;
-
-            Matcher m = FN_PATTERN.matcher(file.getName());
-            if( !m.matches() )
-                continue;
-
-            String testKind = m.group("testKind");
-            String output = m.group("output");
-            switch( output ) {
-                case "Chunks":
-                    break;
-
-                case "Average": {
-                    try {
-                        List<String> lines = Files.readAllLines(file.toPath(), UTF_8);
-                        String[] clmn = COMMA.split(lines.get(1));
-                        TestAverages ta = new TestAverages();
-
-                        ta.diskModel = clmn[0];
-                        ta.testKind = testKind;
-                        ta.chunks = new ArrayList<>(clmn.length);
-                        ta.fileName = file.getName();
-                        for( int i = 1; i < clmn.length; i++ ) {
-                            ta.chunks.add(new Chunk(1024 * (i - 1), FLOAT_FORMATTER.parse(clmn[i]).floatValue()));
-                        }
-
-                        averages.put(testKind, ta);
-                    }
-                    catch( Exception e ) {
-                        echoLn("Failed to read %s: %s", file, e.getMessage());
-                    }
-                    break;
-                }
-            }
-        }
-
-        return averages;
-    }
-
-    private float f(String str) throws ParseException {
-        return FLOAT_FORMATTER.parse(str).floatValue();
-    }
-}
+package tools4free.ssm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static tools4free.ssm.ResultsWriter.*;
+import static tools4free.ssm.SsdSlowMark.echoLn;
+
+public class ResultsAggregator {
+    Config config;
+
+    static final Pattern FN_PATTERN = Pattern.compile("^(?<model>.*)_\\((?<testKind>.*)\\)_*(?<output>[^.]*).csv$");
+    public final static DecimalFormat FLOAT_FORMATTER = (DecimalFormat)NumberFormat.getInstance(Locale.US);
+
+    public ResultsAggregator(Config config) {
+        this.config = config;
+    }
+
+    public void run() {
+        Path in = new File(config.in).toPath();
+        Path out = new File(config.out).toPath();
+        Map<String,Writer> outputs = new HashMap<>();
+
+        echoLn("Running aggregation in " + in);
+        try {
+            listFiles(in)
+                .parallelStream()
+                .map(this::aggregate)
+                .filter(Objects::nonNull)
+                .forEachOrdered(avg -> addAverage(outputs, out, avg));
+        }
+        catch( IOException e ) {
+            echoLn("Failed to read %s: %s", in, e.getMessage());
+        }
+        finally {
+            for( Map.Entry<String,Writer> e : outputs.entrySet() ) {
+                try {
+                    e.getValue().close();
+                }
+                catch( IOException ex ) {
+                    echoLn("Failed to write %s: %s", e.getKey(), ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Regular files of the tree, a directory or file that can't be read is reported and skipped */
+    static List<Path> listFiles(Path root) throws IOException {
+        List<Path> files = new ArrayList<>();
+
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if( attrs.isRegularFile() )
+                    files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                echoLn("Failed to read %s: %s", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return files;
+    }
+
+    /** Rebuilds average of one test, returns { test, caption line, values line } or null */
+    private String[] aggregate(Path path) {
+        try {
+            return aggregate(path.toFile());
+        }
+        catch( UncheckedIOException e ) {
+            echoLn("Failed to read %s: %s", path, e.getMessage());
+            return null;
+        }
+    }
+
+    private String[] aggregate(File file) {
+        Matcher m = FN_PATTERN.matcher(file.getName());
+        if( !m.matches() || !m.group("output").equals("Average") )
+            return null;
+
+        String model = m.group("model");
+        String test = m.group("testKind");
+        File binFile = ResultsFile.of(file);
+        if( binFile.exists() ) {
+            String[] lines = buildAverage(model, binFile, file);
+            if( lines != null )
+                return new String[] { test, lines[0], lines[1] };
+        }
+
+        File chunksFile = new File(file.getAbsolutePath().replace("Average.", "Chunks."));
+        buildAverage(model, chunksFile);
+        try {
+            List<String> lines = Files.readAllLines(file.toPath(), UTF_8);
+            return new String[] { test, lines.get(0), lines.get(1) };
+        }
+        catch( IOException e ) {
+            echoLn("Failed to read %s: %s", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Appends averages to All-[test].csv, captions are taken from the first test seen */
+    private void addAverage(Map<String,Writer> outputs, Path out, String[] avg) {
+        Path outFile = out.resolve("All-" + avg[0] + ".csv");
+        try {
+            Writer wr = outputs.get(avg[0]);
+            if( wr == null ) {
+                wr = Files.newBufferedWriter(outFile, UTF_8);
+                outputs.put(avg[0], wr);
+                wr.write(avg[1]);
+                wr.write('\n');
+            }
+
+            wr.write(avg[2]);
+            wr.write('\n');
+        }
+        catch( IOException e ) {
+            echoLn("Failed to write %s: %s", outFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Same as CSV path, but chunks come from the binary results file at full precision,
+     * while the CSV path reads chunks rounded to 0.1 MB/s. So averages of both paths
+     * may differ in the last printed digit.
+     */
+    private String[] buildAverage(String diskModel, File binFile, File avgFile) {
+        try {
+            ResultsFile res = ResultsFile.read(binFile);
+            float[] values = ResultsWriter.buildAverage(diskModel, avgFile, res.chunks);
+            StringBuilder captions = new StringBuilder("Offset GB");
+            StringBuilder line = new StringBuilder(diskModel);
+
+            for( int i = 0; i < values.length; i++ ) {
+                captions.append(',').append(i + 1);
+                line.append(',').append(String.format(Locale.US, "%.1f", values[i]));
+            }
+
+            return new String[] { captions.toString(), line.toString() };
+        }
+        catch( IOException e ) {
+            echoLn("Failed to read %s: %s", binFile, e.getMessage());
+            return null;
+        }
+    }
+
+    static final Pattern COMMA = Pattern.compile(",");
+
+    private void buildAverage(String diskModel, File file) {
+        try {
+            List<String> lines = Files.readAllLines(file.toPath(), UTF_8);
+            List<Chunk> chunks = new ArrayList<>(lines.size());
+
+            for( int i = 1; i < lines.size(); i++ ) {
+                String line = lines.get(i);
+                String[] c = COMMA.split(line);
+                Chunk chunk = new Chunk(f(c[1]), f(c[2]), f(c[3]), f(c[4]), f(c[5]), f(c[6]));
+                if( c.length > 8 ) {
+                    chunk.submitMs = f(c[7]);
+                    chunk.syncMs = f(c[8]);
+                }
+                if( c.length > 12 ) {
+                    chunk.rateMb = f(c[9]);
+                    chunk.latP50Ms = f(c[10]);
+                    chunk.latP99Ms = f(c[11]);
+                    chunk.latMaxMs = f(c[12]);
+                }
+                if( c.length > 13 )
+                    chunk.tempC = f(c[13]);
+                chunks.add(chunk);
+            }
+
+            String avgFileName = file.getName().replace("Chunks", "Average");
+            File avgFile = new File(file.getParent(), avgFileName);
+
+            ResultsWriter.buildAverage(diskModel, avgFile, chunks);
+        }
+        catch( Exception e ) {
+            echoLn("Failed to read %s: %s", file, e.getMessage());
+        }
+    }
+
+    public static Map<String,TestAverages> loadAverages(File rptDir) {
+        File[] files = rptDir.listFiles();
+        if( files == null )
+            return Collections.emptyMap();
+
+        Map<String,TestAverages> averages = new HashMap<>();
+
+        for( File file : files ) {
+            if( file.isDirectory() )
+                continue;
+
+            Matcher m = FN_PATTERN.matcher(file.getName());
+            if( !m.matches() )
+                continue;
+
+            String testKind = m.group("testKind");
+            String output = m.group("output");
+            switch( output ) {
+                case "Chunks":
+                    break;
+
+                case "Average": {
+                    File binFile = ResultsFile.of(file);
+                    if( binFile.exists() ) {
+                        try {
+                            ResultsFile res = ResultsFile.read(binFile);
+                            TestAverages ta = new TestAverages();
+
+                            ta.diskModel = res.diskModel;
+                            ta.testKind = testKind;
+                            ta.chunks = new ArrayList<>(res.averages.length);
+                            ta.fileName = file.getName();
+                            for( int i = 0; i < res.averages.length; i++ ) {
+                                ta.chunks.add(new Chunk(1024 * i, res.averages[i]));
+                            }
+
+                            averages.put(testKind, ta);
+                            break;
+                        }
+                        catch( IOException e ) {
+                            echoLn("Failed to read %s: %s", binFile, e.getMessage());
+                        }
+                    }
+
+                    try {
+                        List<String> lines = Files.readAllLines(file.toPath(), UTF_8);
+                        String[] clmn = COMMA.split(lines.get(1));
+                        TestAverages ta = new TestAverages();
+
+                        ta.diskModel = clmn[0];
+                        ta.testKind = testKind;
+                        ta.chunks = new ArrayList<>(clmn.length);
+                        ta.fileName = file.getName();
+                        for( int i = 1; i < clmn.length; i++ ) {
+                            ta.chunks.add(new Chunk(1024 * (i - 1), FLOAT_FORMATTER.parse(clmn[i]).floatValue()));
+                        }
+
+                        averages.put(testKind, ta);
+                    }
+                    catch( Exception e ) {
+                        echoLn("Failed to read %s: %s", file, e.getMessage());
+                    }
+                    break;
+                }
+            }
+        }
+
+        return averages;
+    }
+
+    private float f(String str) {
+        // not FLOAT_FORMATTER, files are parsed in parallel
+        return Float.parseFloat(str);
+    }
+}
@@ -0,0 +1,137 @@
+package tools4free.ssm;
+
+import tools4free.ssm.ResultsWriter.Chunk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Compact binary copy of test results, written next to the CSV files and preferred on reload.
+ * <pre>
+ * int   magic 'SSMR', version
+ * int   chunks count, averages count, disk model length (bytes)
+ * byte  disk model (UTF-8), padded to 4 bytes
+ * float columns: offsetMb, min, avgMin, avg, avgMax, max, submitMs, syncMs,
+ *       rateMb, latP50Ms, latP99Ms, latMaxMs, tempC (chunks count each), averages
+ *       (version 1 has the first 6 columns only, version 2 the first 8, version 3 the first 12)
+ * Counts of the header are checked against the file size, so a truncated file fails to read.
+ * </pre>
+ * All values are little-endian, so the file can be memory-mapped and read column by column.
+ */
+public class ResultsFile {
+    static final String SUFFIX = "_Results.bin";
+    static final int MAGIC = 0x524d5353; // "SSMR"
+    static final int VERSION = 4;
+    static final int[] COLUMNS = { 0, 6, 8, 12, 13 }; // by version
+
+    String diskModel;
+    List<Chunk> chunks;
+    float[] averages;
+
+    /** Binary results file for the given *_Chunks.csv or *_Average.csv */
+    static File of(File csvFile) {
+        String name = csvFile.getName().replaceFirst("_(Chunks|Average)\\.csv$", SUFFIX);
+        return new File(csvFile.getParentFile(), name);
+    }
+
+    static void write(File file, String diskModel, List<Chunk> chunks, float[] averages) throws IOException {
+        byte[] model = diskModel.getBytes(UTF_8);
+        int cChunks = chunks.size();
+        int size = 5 * 4 + ((model.length + 3) & ~3) + (cChunks * COLUMNS[VERSION] + averages.length) * 4;
+        ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        buf.putInt(MAGIC).putInt(VERSION);
+        buf.putInt(cChunks).putInt(averages.length).putInt(model.length);
+        buf.put(model);
+        buf.position(buf.position() + ((4 - model.length % 4) & 3));
+
+        FloatBuffer floats = buf.asFloatBuffer();
+        for( Chunk c : chunks ) floats.put(c.offsetMb);
+        for( Chunk c : chunks ) floats.put(c.min);
+        for( Chunk c : chunks ) floats.put(c.avgMin);
+        for( Chunk c : chunks ) floats.put(c.avg);
+        for( Chunk c : chunks ) floats.put(c.avgMax);
+        for( Chunk c : chunks ) floats.put(c.max);
+        for( Chunk c : chunks ) floats.put(c.submitMs);
+        for( Chunk c : chunks ) floats.put(c.syncMs);
+        for( Chunk c : chunks ) floats.put(c.rateMb);
+        for( Chunk c : chunks ) floats.put(c.latP50Ms);
+        for( Chunk c : chunks ) floats.put(c.latP99Ms);
+        for( Chunk c : chunks ) floats.put(c.latMaxMs);
+        for( Chunk c : chunks ) floats.put(c.tempC);
+        floats.put(averages);
+        buf.rewind();
+
+        try( FileChannel fc = FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING) ) {
+            while( buf.hasRemaining() )
+                fc.write(buf);
+        }
+    }
+
+    /** Reads results, a file that is truncated (e.g. by an aborted run) or corrupt fails with IOException */
+    static ResultsFile read(File file) throws IOException {
+        try( FileChannel fc = FileChannel.open(file.toPath(), READ) ) {
+            long fileSize = fc.size();
+            if( fileSize < 5 * 4 )
+                throw new IOException("Not a results file: " + file);
+
+            MappedByteBuffer map = fc.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+
+            int version = (map.getInt() == MAGIC) ? map.getInt() : -1;
+            if( version < 1 || version > VERSION )
+                throw new IOException("Not a results file: " + file);
+
+            int cChunks = map.getInt();
+            int cAverages = map.getInt();
+            int modelLength = map.getInt();
+            long expectedSize = 5 * 4 + ((modelLength + 3L) & ~3L) + ((long)cChunks * COLUMNS[version] + cAverages) * 4;
+            if( cChunks < 0 || cAverages < 0 || modelLength < 0 || expectedSize > fileSize )
+                throw new IOException("Truncated or corrupt results file: " + file);
+
+            byte[] model = new byte[modelLength];
+            map.get(model);
+            map.position(map.position() + ((4 - model.length % 4) & 3));
+
+            float[][] columns = new float[COLUMNS[version]][cChunks];
+            FloatBuffer floats = map.asFloatBuffer();
+            for( float[] column : columns ) {
+                floats.get(column);
+            }
+
+            ResultsFile res = new ResultsFile();
+            res.diskModel = new String(model, UTF_8);
+            res.chunks = new ArrayList<>(cChunks);
+            for( int i = 0; i < cChunks; i++ ) {
+                Chunk chunk = new Chunk(columns[0][i], columns[1][i], columns[2][i], columns[3][i], columns[4][i], columns[5][i]);
+                if( columns.length > 6 ) {
+                    chunk.submitMs = columns[6][i];
+                    chunk.syncMs = columns[7][i];
+                }
+                if( columns.length > 8 ) {
+                    chunk.rateMb = columns[8][i];
+                    chunk.latP50Ms = columns[9][i];
+                    chunk.latP99Ms = columns[10][i];
+                    chunk.latMaxMs = columns[11][i];
+                }
+                if( columns.length > 12 )
+                    chunk.tempC = columns[12][i];
+                res.chunks.add(chunk);
+            }
+            res.averages = new float[cAverages];
+            floats.get(res.averages);
+
+            return res;
+        }
+    }
+}
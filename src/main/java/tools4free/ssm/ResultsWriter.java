@@ -1,462 +1,777 @@
-package tools4free.ssm;
-
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.io.*;
-import java.nio.file.Files;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.*;
-import java.util.stream.Collectors;
-
-import static java.lang.Math.abs;
-import static java.lang.Math.max;
-import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.time.Instant.ofEpochMilli;
-import static java.util.Locale.US;
-import static tools4free.ssm.SsdSlowMark.*;
-
-public class ResultsWriter {
-    public final static DateTimeFormatter DTF_YMD_HMS = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
-
-    Config config;
-
-    public ResultsWriter(Config config) {
-        this.config = config;
-    }
-
-    public File writeTestResults(TestCase testCase) {
-        String testKind = testCase.testKind;
-        File tcRoot = testCase.root;
-        int cBlocks = testCase.cBlocks;
-        float[] blocks = testCase.blocks;
-        String diskModel = si.getDriveModel(tcRoot, "Unknown Model");
-        testCase.diskModel = diskModel;
-
-        testCase.dataSizeGb = (float)(cBlocks * config.bs * (double)KB / GB);
-        int iDataSizeGb = (int)testCase.dataSizeGb;
-
-        String baseFileName = diskModel.replace(' ', '_') + "_(" + testKind + "-" + iDataSizeGb + "gb)";
-        ZonedDateTime now = ZonedDateTime.ofInstant(ofEpochMilli(testStart), ZoneId.systemDefault());
-        File rptDir = new File(new File(config.rpt), diskModel.replace(' ', '_') + "_" + DTF_YMD_HMS.format(now));
-        rptDir.mkdirs();
-
-        int maxWidth = config.iw - config.ip * 2;
-        int chunkWidth = max(1, (cBlocks + maxWidth - 1) / maxWidth);
-        int cChunks = (cBlocks + chunkWidth - 1) / chunkWidth;
-        float blockSizeMb = config.bs / (float)1024;
-        float offsetMb = 0;
-        float allMin = Float.MAX_VALUE, allMax = 0;
-        List<Chunk> chunks = new ArrayList<>(cChunks);
-
-        File file = new File(rptDir, baseFileName + "_Chunks.csv");
-        try( OutputStream fos = new FileOutputStream(file) ) {
-            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
-                wr.write("N,MB,min,avgMin,avg,avgMax,max\n");
-
-                for( int n = 0, nBlc = 0; nBlc < cBlocks; nBlc++ ) {
-                    float perf = blocks[nBlc];
-                    float min, sum, max;
-                    int nBlc0 = nBlc;
-
-                    min = sum = max = perf;
-                    for( int j = 1; j < chunkWidth && nBlc < cBlocks; j++, nBlc++ ) {
-                        perf = blocks[nBlc];
-                        min = Math.min(min, perf);
-                        max = Math.max(max, perf);
-                        sum += perf;
-                    }
-
-                    float sumMin = 0, cMin = 0, sumMax = 0, cMax = 0;
-                    float avg = sum / chunkWidth;
-
-                    for( int j = 1; j < chunkWidth && nBlc < cBlocks; j++ ) {
-                        perf = blocks[nBlc0 + j];
-                        if( perf > avg ) {
-                            sumMax += perf;
-                            cMax++;
-                        }
-                        if( perf < avg ) {
-                            sumMin += perf;
-                            cMin++;
-                        }
-                    }
-
-                    float avgMin = (cMin == 0) ? avg : sumMin / cMin;
-                    float avgMax = (cMax == 0) ? avg : sumMax / cMax;
-
-                    String line = String.format(US,
-                            "%s,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f\n",
-                            ++n, offsetMb, min, avgMin, avg, avgMax, max);
-
-                    wr.write(line);
-                    chunks.add(new Chunk(offsetMb, min, avgMin, avg, avgMax, max));
-
-                    allMin = Math.min(allMin, min);
-                    allMax = Math.max(allMax, max);
-                    offsetMb += blockSizeMb * chunkWidth;
-                }
-            }
-
-            cChunks = chunks.size();
-            echoLn("CSV report: " + file.getAbsolutePath());
-        }
-        catch( Exception e ) {
-            System.err.println("Failed to write to " + file);
-            e.printStackTrace();
-        }
-
-        // collect average performance at 1GB step
-        File fileAvg = new File(rptDir, baseFileName + "_Average.csv");
-        buildAverage(diskModel, fileAvg, chunks);
-
-        // generate image
-        Chart chart = new Chart(config);
-
-        chart.generateFor(chunks, Chart.Kind.Spread, Color.DARK_GRAY, true);
-        chart.renderTestSummary(testCase);
-        testCase.pctls = chart.pctls;
-
-        // Save as PNG
-        File chartFile = new File(rptDir, baseFileName + "_Chart.png");
-        try {
-            ImageIO.write(chart.img, "png", chartFile);
-            echoLn("CSV report: " + chartFile.getAbsolutePath());
-            // Desktop.getDesktop().open(chartFile);
-        }
-        catch( IOException e ) {
-            System.err.println("Failed to write to " + chartFile);
-            e.printStackTrace();
-        }
-
-        return rptDir;
-    }
-
-    public void writeSummary(String versionInfo, File rptDir, TestCase readTest, TestCase writeTest) {
-        // aborted via CTRL+C
-        if( rptDir == null )
-            return;
-
-        Map<String,TestAverages> avrgs = ResultsAggregator.loadAverages(rptDir);
-        Chart chart = new Chart(config);
-
-        for( Map.Entry<String, TestAverages> entry : avrgs.entrySet() ) {
-            TestAverages ta = entry.getValue();
-            chart.prepareFor(ta.chunks);
-        }
-
-        chart.prepared();
-        chart.allMax = (float)(Math.ceil(chart.allMax * 1.1 / 100) * 100);
-        chart.allMin = 0;
-
-        int nLine = 0;
-        String diskModel = "[Unknown Model]";
-        TestAverages taRead = null;
-        TestAverages taWrite = null;
-
-        for( Map.Entry<String, TestAverages> entry : avrgs.entrySet() ) {
-            TestAverages ta = entry.getValue();
-            Color lineColor;
-
-            diskModel = ta.diskModel;
-            if( ta.testKind.toLowerCase().contains("write") ) {
-                taWrite = ta;
-                lineColor = Color.RED;
-            }
-            else {
-                taRead = ta;
-                lineColor = Color.GREEN.darker();
-            }
-
-            if( chart.generateFor(ta.chunks, Chart.Kind.Line, lineColor, false) ) {
-                ta.pctls = chart.pctls;
-                chart.addLineMarker(nLine, ta.testKind, lineColor);
-                nLine++;
-            }
-        }
-
-        File chartFile = new File(rptDir, diskModel.replace(' ', '_') + "_(Read-Write)_Averages.png");
-
-        if( chart.img != null ) {
-            chart.addChartTitle("Summary", diskModel);
-
-            // Save as PNG
-            try {
-                ImageIO.write(chart.img, "png", chartFile);
-                echoLn("ReadWrite Averages: " + chartFile.getAbsolutePath());
-                // Desktop.getDesktop().open(chartFile);
-            }
-            catch( IOException e ) {
-                System.err.println("Failed to write to " + chartFile + ": " + e.getMessage());
-            }
-        }
-
-        String html = resourceAsString(this, "report-template.html");
-
-        html = html.replace("{disk-model}", diskModel);
-        html = html.replace("{test-size}", String.format(US, "%.0f", chart.dataSizeGb));
-        html = html.replace("{version-info}", versionInfo);
-
-        if( readTest != null )
-            html = html.replace("{read-summary}", String.valueOf(readTest.pctls));
-        else if( taRead != null )
-            html = html.replace("{read-summary}", String.valueOf(taRead.pctls));
-        else
-            html = html.replace("{read-summary}", "[No read test]");
-
-        if( writeTest != null )
-            html = html.replace("{write-summary}", String.valueOf(writeTest.pctls));
-        else if( taWrite != null )
-            html = html.replace("{write-summary}", String.valueOf(taWrite.pctls));
-        else
-            html = html.replace("{write-summary}", "[No write test]");
-
-        html = html.replace("{read-write-chart}", String.format(US, "<img src='%s'/>", chartFile.getName()));
-        html = html.replace("{read-chart}",
-                taRead == null ? ""
-                               : String.format(US, "<img src='%s'/>", taRead.fileName.replace("Average.csv", "Chart.png")));
-        html = html.replace("{write-chart}",
-                taWrite == null ? ""
-                                : String.format(US, "<img src='%s'/>", taWrite.fileName.replace("Average.csv", "Chart.png")));
-
-        File summaryFile = new File(rptDir, diskModel.replace(' ', '_') + "_Summary.html");
-        try {
-            Files.write(summaryFile.toPath(), html.getBytes(UTF_8));
-            echoLn("HTML report: " + summaryFile.getAbsolutePath());
-            Desktop.getDesktop().open(summaryFile);
-        }
-        catch( IOException e ) {
-            System.err.println("Failed to write to " + summaryFile + ": " + e.getMessage());
-        }
-    }
-
-    public String resourceAsString(Object obj, String resourcePath) {
-        Class cls = (obj instanceof Class) ? (Class)obj : obj.getClass();
-        InputStream is = cls.getResourceAsStream(resourcePath);
-        if( is != null ) {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(is, UTF_8));
-            return reader.lines().collect(Collectors.joining(System.lineSeparator()));
-        }
-        return null;
-    }
-
-    public static void buildAverage(String diskModel, File fileAvg, List<Chunk> chunks) {
-        if( chunks.isEmpty() )
-            return;
-
-        Chunk last = chunks.get(chunks.size() - 1);
-        int iDataSizeGb = Math.max(1, Math.round(last.offsetMb / 1024));
-        StringBuilder captions = new StringBuilder(iDataSizeGb * 5);
-        StringBuilder values = new StringBuilder(iDataSizeGb * 10);
-        Formatter valueF = new Formatter(values);
-        int cBlocksPerGB = chunks.size() / iDataSizeGb;
-
-        captions.append("Offset GB");
-        values.append(diskModel);
-        for( int i = 0; i < iDataSizeGb; i++ ) {
-            int midPos = i * cBlocksPerGB + cBlocksPerGB / 2;
-            int from = Math.max(0, midPos - cBlocksPerGB);
-            int to = Math.min(chunks.size() - 1, midPos + cBlocksPerGB);
-            float sum = 0;
-
-            for( int j = from; j <= to; j++ ) {
-                sum += chunks.get(j).avg;
-            }
-
-            captions.append(',').append(i + 1);
-            values.append(','); valueF.format(US, "%.1f", sum / (to - from));
-        }
-
-        captions.append('\n');
-        values.append('\n');
-        try( OutputStream fos = new FileOutputStream(fileAvg) ) {
-            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
-                wr.write(captions.toString());
-                wr.write(values.toString());
-            }
-            echoLn("CSV report: " + fileAvg.getAbsolutePath());
-
-            Pctls pctls = buildPctls(chunks);
-            echoLn(pctls.toString());
-        }
-        catch( Exception e ) {
-            System.err.println("Failed to write to " + fileAvg);
-            e.printStackTrace();
-        }
-    }
-
-    static class Pctl {
-        int pos;
-        float weight;
-        float sizeGb;
-        float value;
-
-        @Override
-        public String toString() {
-            String str = String.format(US, "%.1f MB/s, %.1f%% (%.1f GB) ", value, weight, sizeGb);
-            return str;
-        }
-    }
-
-    static class Pctls {
-        List<Pctl> avg = new ArrayList<>(3);
-        Pctl max;
-        Pctl min;
-        float allMin;
-        float allAvg;
-        float allMax;
-
-        @Override
-        public String toString() {
-            List<Pctl> avg = new ArrayList<>(this.avg);
-            avg.sort(Comparator.comparing((Pctl pctl) -> pctl.value).reversed());
-
-            String str =
-                    "      avg: " + String.format(US, "%.1f MB/s", allAvg) + '\n' +
-                    "  avg.max: " + avg.get(0) + '\n' +
-                    "      mid: " + avg.get(1) + '\n' +
-                    "      min: " + avg.get(2) + '\n' +
-                    "  typ.max: " + max + '\n' +
-                    "  typ.min: " + min + '\n';
-            return str;
-        }
-    }
-
-    static Pctls buildPctls(List<Chunk> chunks) {
-        Pctls pctls = new Pctls();
-
-        if( chunks.size() < 2 ) {
-            for( int i = 0; i < 3; i++ ) {
-                pctls.avg.add(new Pctl());
-            }
-            return pctls;
-        }
-
-        int cChunks = chunks.size();
-        float sizeGb = chunks.get(1).offsetMb * cChunks / 1024.0f;
-
-        int[] pctlAvg = new int[101];
-        int[] pctlMax = new int[101];
-        int[] pctlMin = new int[101];
-        float allMin = Float.MAX_VALUE, allMax = 0, allAvg = 0;
-
-        for( int x = 0, i = 0; i < cChunks; x++, i++ ) {
-            Chunk c = chunks.get(i);
-            allMin = Math.min(allMin, c.min);
-            allMax = Math.max(allMax, c.max);
-            allAvg += c.avg;
-        }
-        allAvg = allAvg / cChunks;
-
-        float minMaxRange = allMax - allMin;
-        int maxPctl = 5;
-        for( int x = 0, i = 0; i < cChunks; x++, i++ ) {
-            Chunk c = chunks.get(i);
-
-            addPctl(pctlAvg, maxPctl, (int)(100.0 * (c.avg - allMin) / minMaxRange));
-            addPctl(pctlMax, maxPctl, (int)(100.0 * (c.avgMax - allMin) / minMaxRange));
-            addPctl(pctlMin, maxPctl, (int)(100.0 * (c.avgMin - allMin) / minMaxRange));
-        }
-
-        for( int i = 0; i < 3; i++ ) {
-            Pctl pctl = makePctl(sizeGb, chunks, pctlAvg, allMin, minMaxRange, maxPctl);
-            pctls.avg.add(pctl);
-            erasePctl(pctlAvg, pctl.pos, 15);
-        }
-
-        pctls.max = makePctl(sizeGb, chunks, pctlMax, allMin, minMaxRange, maxPctl);
-        pctls.min = makePctl(sizeGb, chunks, pctlMin, allMin, minMaxRange, maxPctl);
-
-        pctls.allMin = allMin;
-        pctls.allAvg = allAvg;
-        pctls.allMax = allMax;
-
-        return pctls;
-    }
-
-    private static Pctl makePctl(float sizeGb, List<Chunk> chunks, int[] pctls, float allMin, float minMaxRange, int maxPctl) {
-        int posOfMaxValue = getMaxPctlPos(pctls);
-        Pctl pctl = new Pctl();
-        float range = minMaxRange * 0.15f;
-
-        pctl.pos = posOfMaxValue;
-        pctl.value = allMin + minMaxRange / 100 * posOfMaxValue;
-
-        pctl.weight = 0;
-        for( Chunk chunk : chunks ) {
-            if( abs(chunk.avg - pctl.value) <= range )
-                pctl.weight += 1;
-        }
-        pctl.weight = 100.0f * pctl.weight / chunks.size();
-        pctl.sizeGb = sizeGb * pctl.weight / 100.0f;
-
-        return pctl;
-    }
-
-    private static int getMaxPctlPos(int[] pctlAvg) {
-        int maxPos = 0;
-        int maxCount = 0;
-        for( int j = 0; j < pctlAvg.length; j++ ) {
-            if( pctlAvg[j] > maxCount ) {
-                maxPos = j;
-                maxCount = pctlAvg[j];
-            }
-        }
-        return maxPos;
-    }
-
-    private static void addPctl(int[] pctls, int maxPtl, int pos) {
-        if( pos < 0 )
-            pos = 0;
-        else if( pos >= pctls.length )
-            pos = pctls.length - 1;
-
-        pctls[pos] += maxPtl;
-        for( int n = 1; n <= maxPtl; n++ ) {
-            int pmin = pos - n;
-            if( pmin >= 0 )
-                pctls[pmin] += (maxPtl - n);
-            int pmax = pos + n;
-            if( pmax < pctls.length )
-                pctls[pmax] += (maxPtl - n);
-        }
-    }
-
-    private static void erasePctl(int[] pctls, int pos, int distance) {
-        if( pos < 0 )
-            pos = 0;
-        else if( pos >= pctls.length )
-            pos = pctls.length - 1;
-
-        int eraseFrom = Math.max(0, pos - distance);
-        int eraseTo = Math.min(pctls.length - 1, pos + distance);
-        for( int j = eraseFrom; j <= eraseTo; j++ ) {
-            pctls[j] = 0;
-        }
-    }
-
-    static class Chunk {
-        float offsetMb;
-        float min;
-        float avgMin;
-        float avg;
-        float avgMax;
-        float max;
-
-        public Chunk(float offsetMb, float avg) {
-            this.offsetMb = offsetMb;
-            this.min = this.avgMin = this.avg = this.avgMax = this.max = avg;
-        }
-
-        public Chunk(float offsetMb, float min, float avgMin, float avg, float avgMax, float max) {
-            this.offsetMb = offsetMb;
-            this.min = min;
-            this.avgMin = avgMin;
-            this.avg = avg;
-            this.avgMax = avgMax;
-            this.max = max;
-        }
-    }
-}
+package tools4free.ssm;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.io.*;
+import java.nio.file.Files;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.Instant.ofEpochMilli;
+import static java.util.Locale.US;
+import static tools4free.ssm.SsdSlowMark.*;
+
+public class ResultsWriter {
+    public final static DateTimeFormatter DTF_YMD_HMS = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    Config config;
+
+    public ResultsWriter(Config config) {
+        this.config = config;
+    }
+
+    public File writeTestResults(TestCase testCase) {
+        JfrEvents.Phase phase = JfrEvents.phase(config, testCase.testKind, "report");
+        try {
+            return writeResults(testCase);
+        }
+        finally {
+            JfrEvents.end(phase);
+        }
+    }
+
+    private File writeResults(TestCase testCase) {
+        String testKind = testCase.testKind;
+        File tcRoot = testCase.root;
+        long cBlocks = testCase.cBlocks;
+        String diskModel = si.getDriveModel(tcRoot, "Unknown Model");
+        testCase.diskModel = diskModel;
+
+        testCase.dataSizeGb = (float)(cBlocks * config.bs * (double)KB / GB);
+        int iDataSizeGb = (int)testCase.dataSizeGb;
+
+        String baseFileName = diskModel.replace(' ', '_') + "_(" + testKind + "-" + iDataSizeGb + "gb)";
+        ZonedDateTime now = ZonedDateTime.ofInstant(ofEpochMilli(testStart), ZoneId.systemDefault());
+        File rptDir = new File(new File(config.rpt), diskModel.replace(' ', '_') + "_" + DTF_YMD_HMS.format(now));
+        rptDir.mkdirs();
+
+        List<Chunk> chunks = testCase.chunks();
+
+        File file = new File(rptDir, baseFileName + "_Chunks.csv");
+        try( OutputStream fos = new FileOutputStream(file) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write("N,MB,min,avgMin,avg,avgMax,max,submit ms,sync ms,rate MB/s,lat p50 ms,lat p99 ms,lat max ms,temp C\n");
+
+                int n = 0;
+                for( Chunk c : chunks ) {
+                    String line = String.format(US,
+                            "%s,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.4f,%.4f,%.1f,%.4f,%.4f,%.4f,%.1f\n",
+                            ++n, c.offsetMb, c.min, c.avgMin, c.avg, c.avgMax, c.max, c.submitMs, c.syncMs,
+                            c.rateMb, c.latP50Ms, c.latP99Ms, c.latMaxMs, c.tempC);
+
+                    wr.write(line);
+                }
+            }
+
+            echoLn("CSV report: " + file.getAbsolutePath());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+
+        testCase.plateaus = Plateaus.of(chunks);
+        writePlateaus(new File(rptDir, baseFileName + "_Plateaus.csv"), testCase.plateaus);
+
+        if( testCase.jobs.length > 1 )
+            writeJobs(new File(rptDir, baseFileName + "_Jobs.csv"), testCase);
+
+        testCase.latency = Latency.of(testCase.latencies);
+        testCase.latency.iops = testCase.iops();
+        writeLatency(new File(rptDir, baseFileName + "_Latency.csv"), testCase.latency);
+        if( testCase.writeNs > 0 )
+            writeSync(new File(rptDir, baseFileName + "_Sync.csv"), testCase);
+        if( testCase instanceof TestRecovery )
+            writeRecovery(new File(rptDir, baseFileName + "_Recovery.csv"), (TestRecovery)testCase);
+        if( testCase.steady != null )
+            writeSteady(new File(rptDir, baseFileName + "_Steady.csv"), testCase.steady);
+        if( testCase.diskStats != null ) {
+            writeDevice(new File(rptDir, baseFileName + "_Device.csv"), testCase.diskStats.device);
+            writeDiskStats(new File(rptDir, baseFileName + "_DiskStats.csv"), testCase.diskStats);
+        }
+        if( testCase.driveTemp != null )
+            writeTemperature(new File(rptDir, baseFileName + "_Temperature.csv"), testCase.driveTemp);
+        if( testCase.timeline != null )
+            writeTimeline(new File(rptDir, baseFileName + "_Timeline.csv"), testCase.timeline);
+        if( testCase.blocks != null )
+            writeBlocks(new File(rptDir, baseFileName + "_Blocks.csv"), testCase);
+
+        // collect average performance at 1GB step
+        File fileAvg = new File(rptDir, baseFileName + "_Average.csv");
+        float[] averages = buildAverage(diskModel, fileAvg, chunks);
+
+        File fileBin = ResultsFile.of(fileAvg);
+        try {
+            ResultsFile.write(fileBin, diskModel, chunks, averages);
+        }
+        catch( IOException e ) {
+            System.err.println("Failed to write to " + fileBin);
+            e.printStackTrace();
+        }
+
+        // generate image
+        Chart chart = new Chart(config);
+
+        chart.generateFor(chunks, Chart.Kind.Spread, Color.DARK_GRAY, true);
+        chart.addCliffMarkers(testCase.plateaus);
+        chart.addTemperature(chunks);
+        chart.renderTestSummary(testCase);
+        testCase.pctls = chart.pctls;
+
+        // Save as PNG
+        File chartFile = new File(rptDir, baseFileName + "_Chart.png");
+        try {
+            ImageIO.write(chart.img, "png", chartFile);
+            echoLn("CSV report: " + chartFile.getAbsolutePath());
+            // Desktop.getDesktop().open(chartFile);
+        }
+        catch( IOException e ) {
+            System.err.println("Failed to write to " + chartFile);
+            e.printStackTrace();
+        }
+
+        if( testCase.timeline != null && testCase.timeline.buckets.size() > 1 )
+            writeTimelineChart(new File(rptDir, baseFileName + "_Timeline.png"), testCase);
+
+        return rptDir;
+    }
+
+    /** Same as the chart of the test, but with time at the X axis */
+    void writeTimelineChart(File chartFile, TestCase testCase) {
+        Timeline timeline = testCase.timeline;
+        Chart chart = new Chart(config);
+
+        chart.timeSec = timeline.durationSec();
+        chart.generateFor(timeline.chunks(config.iw - config.ip * 2), Chart.Kind.Spread, Color.DARK_GRAY, true);
+        chart.renderTestSummary(testCase);
+
+        try {
+            ImageIO.write(chart.img, "png", chartFile);
+            echoLn("CSV report: " + chartFile.getAbsolutePath());
+        }
+        catch( IOException e ) {
+            System.err.println("Failed to write to " + chartFile);
+            e.printStackTrace();
+        }
+    }
+
+    void writeLatency(File file, Latency latency) {
+        try( OutputStream fos = new FileOutputStream(file) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write("Percentile,ms\n");
+                for( int i = 0; i < Latency.PCTLS.length; i++ ) {
+                    wr.write(String.format(US, "%s,%.3f\n", Latency.label(Latency.PCTLS[i]), latency.values[i]));
+                }
+                wr.write(String.format(US, "max,%.3f\n", latency.max));
+                wr.write(String.format(US, "IOPS,%.0f\n", latency.iops));
+            }
+            echoLn("CSV report: " + file.getAbsolutePath());
+            echoLn(latency.toString());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+    }
+
+    /** Time spent in writes apart from time spent in syncs, and latency of syncs */
+    void writeSync(File file, TestCase testCase) {
+        Latency sync = Latency.of(testCase.syncLatencies);
+
+        try( OutputStream fos = new FileOutputStream(file) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write("sync,calls,write s,sync s");
+                for( double pctl : Latency.PCTLS ) {
+                    wr.write("," + Latency.label(pctl) + " ms");
+                }
+                wr.write(",max ms\n");
+
+                wr.write(String.format(US, "%s,%s,%.3f,%.3f", config.sync, testCase.syncLatencies.total,
+                                       testCase.writeNs / NANO_SEC, testCase.syncNs / NANO_SEC));
+                for( float value : sync.values ) {
+                    wr.write(String.format(US, ",%.3f", value));
+                }
+                wr.write(String.format(US, ",%.3f\n", sync.max));
+            }
+            echoLn("CSV report: " + file.getAbsolutePath());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+    }
+
+    void writePlateaus(File file, Plateaus plateaus) {
+        try( OutputStream fos = new FileOutputStream(file) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write("Plateau,start GB,length GB,MB/s\n");
+
+                int n = 0;
+                for( Plateaus.Plateau p : plateaus.list ) {
+                    wr.write(String.format(US, "%s,%.1f,%.1f,%.1f\n", ++n, p.startGb, p.lengthGb, p.perfMb));
+                }
+            }
+            echoLn("CSV report: " + file.getAbsolutePath());
+            echo(plateaus.toString());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+    }
+
+    void writeRecovery(File file, TestRecovery test) {
+        try( OutputStream fos = new FileOutputStream(file) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write("idle s,recovered GB,MB/s\n");
+                for( TestRecovery.Round round : test.rounds ) {
+                    wr.write(String.format(US, "%s,%.2f,%.1f\n", round.idleSec, round.recoveredGb, round.perfMb));
+                }
+            }
+            echoLn("CSV report: " + file.getAbsolutePath());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+    }
+
+    void writeSteady(File file, SteadyState steady) {
+        try( OutputStream fos = new FileOutputStream(file) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write("reached,GB,MB/s,window s,tolerance %\n");
+                wr.write(String.format(US, "%s,%.1f,%.1f,%s,%s\n",
+                                       steady.reached, steady.reachedGb, steady.perfMb, config.swin, config.stol));
+            }
+            echoLn("CSV report: " + file.getAbsolutePath());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+    }
+
+    void writeDevice(File file, BlockDevice device) {
+        try( OutputStream fos = new FileOutputStream(file) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write("param,value\n");
+                wr.write(String.format(US, "device,%s\n", device.name));
+                if( device.partition != null )
+                    wr.write(String.format(US, "partition,%s\n", device.partition));
+                if( device.model != null )
+                    wr.write(String.format(US, "model,%s\n", device.model));
+                if( device.firmware != null )
+                    wr.write(String.format(US, "firmware,%s\n", device.firmware));
+                if( device.serial != null )
+                    wr.write(String.format(US, "serial,%s\n", device.serial));
+                for( Map.Entry<String,String> e : device.queue.entrySet() ) {
+                    wr.write(String.format(US, "queue/%s,%s\n", e.getKey(), e.getValue()));
+                }
+            }
+            echoLn("CSV report: " + file.getAbsolutePath());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+    }
+
+    void writeDiskStats(File file, DiskStats stats) {
+        try( OutputStream fos = new FileOutputStream(file) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write("s,test MB/s,r/s,w/s,rMB/s,wMB/s,rrqm/s,wrqm/s,r_await ms,w_await ms,aqu-sz,in flight,util %\n");
+
+                for( DiskStats.Sample s : stats.samples() ) {
+                    String line = String.format(US,
+                            "%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.3f,%.3f,%.2f,%s,%.1f\n",
+                            s.sec, s.testMb, s.readsPerSec, s.writesPerSec, s.readMb, s.writeMb,
+                            s.readMergesPerSec, s.writeMergesPerSec, s.readAwaitMs, s.writeAwaitMs,
+                            s.queueSize, s.inFlight, s.utilPct);
+
+                    wr.write(line);
+                }
+            }
+            echoLn("CSV report: " + file.getAbsolutePath());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+    }
+
+    void writeTemperature(File file, DriveTemp temp) {
+        try( OutputStream fos = new FileOutputStream(file) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write("s,GB,C\n");
+                for( DriveTemp.Sample s : temp.samples() ) {
+                    wr.write(String.format(US, "%.1f,%.3f,%.1f\n", s.sec, s.gb, s.tempC));
+                }
+            }
+            echoLn("  drive temperature: max %.1f C", temp.maxC());
+            echoLn("CSV report: " + file.getAbsolutePath());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+    }
+
+    void writeTimeline(File file, Timeline timeline) {
+        try( OutputStream fos = new FileOutputStream(file) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write("s,unix ms,MB/s,IOPS,min block MB/s,max block MB/s,lat avg ms,lat max ms\n");
+
+                for( int n = 0; n < timeline.buckets.size(); n++ ) {
+                    Timeline.Bucket b = timeline.buckets.get(n);
+                    long atMs = n * timeline.intervalNs / 1_000_000;
+                    String line = String.format(US,
+                            "%.3f,%s,%.1f,%.0f,%.1f,%.1f,%.4f,%.4f\n",
+                            atMs / 1000.0, timeline.startEpochMs + atMs, timeline.perfMb(n), b.count / timeline.secOf(n),
+                            (b.count == 0) ? 0 : b.min, b.max,
+                            (b.count == 0) ? 0 : b.sumLatencyNs / 1e6 / b.count, b.maxLatencyNs / 1e6);
+
+                    wr.write(line);
+                }
+            }
+            echoLn("CSV report: " + file.getAbsolutePath());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+    }
+
+    /** Every block of the test from the spill file, which is deleted once written */
+    void writeBlocks(File file, TestCase testCase) {
+        try( BlockRecorder blocks = testCase.blocks ) {
+            try( OutputStream fos = new FileOutputStream(file) ) {
+                try( OutputStreamWriter wr = new OutputStreamWriter(new BufferedOutputStream(fos), UTF_8) ) {
+                    wr.write("block,s,unix ms,MB/s,lat ms\n");
+
+                    BlockRecorder.Reader reader = blocks.reader();
+                    for( long n = 0; reader.hasNext(); n++ ) {
+                        float perf = reader.next();
+                        wr.write(String.format(US, "%s,%.6f,%s,%.1f,%.4f\n",
+                                               n, reader.atUs / 1e6, blocks.startEpochMs + reader.atUs / 1000,
+                                               perf, reader.latencyMs));
+                    }
+                }
+                echoLn("CSV report: " + file.getAbsolutePath());
+            }
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+        testCase.blocks = null;
+    }
+
+    void writeJobs(File file, TestCase testCase) {
+        try( OutputStream fos = new FileOutputStream(file) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write("Job,Files,GB,MB/s,min,max\n");
+
+                for( TestCase.Job job : testCase.jobs ) {
+                    float sizeGb = (float)(job.cBlocks * config.bs * (double)KB / GB);
+                    String line = String.format(US,
+                            "%s,%s,%.1f,%.1f,%.1f,%.1f\n",
+                            job.n + 1, job.cFiles, sizeGb, job.perfMb(config),
+                            (job.cBlocks == 0) ? 0 : job.perfMin, job.perfMax);
+
+                    wr.write(line);
+                    echoLn("  job #%s: %s files, %.1f GB, %.1f MB/s", job.n + 1, job.cFiles, sizeGb, job.perfMb(config));
+                }
+            }
+            echoLn("CSV report: " + file.getAbsolutePath());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + file);
+            e.printStackTrace();
+        }
+    }
+
+    public void writeSummary(String versionInfo, File rptDir, TestCase readTest, TestCase writeTest) {
+        // aborted via CTRL+C
+        if( rptDir == null )
+            return;
+
+        Map<String,TestAverages> avrgs = ResultsAggregator.loadAverages(rptDir);
+        Chart chart = new Chart(config);
+
+        for( Map.Entry<String, TestAverages> entry : avrgs.entrySet() ) {
+            TestAverages ta = entry.getValue();
+            chart.prepareFor(ta.chunks);
+        }
+
+        chart.prepared();
+        chart.allMax = (float)(Math.ceil(chart.allMax * 1.1 / 100) * 100);
+        chart.allMin = 0;
+
+        int nLine = 0;
+        String diskModel = "[Unknown Model]";
+        TestAverages taRead = null;
+        TestAverages taWrite = null;
+
+        for( Map.Entry<String, TestAverages> entry : avrgs.entrySet() ) {
+            TestAverages ta = entry.getValue();
+            Color lineColor;
+
+            diskModel = ta.diskModel;
+            if( ta.testKind.toLowerCase().contains("write") ) {
+                taWrite = ta;
+                lineColor = Color.RED;
+            }
+            else {
+                taRead = ta;
+                lineColor = Color.GREEN.darker();
+            }
+
+            if( chart.generateFor(ta.chunks, Chart.Kind.Line, lineColor, false) ) {
+                ta.pctls = chart.pctls;
+                chart.addLineMarker(nLine, ta.testKind, lineColor);
+                nLine++;
+            }
+        }
+
+        File chartFile = new File(rptDir, diskModel.replace(' ', '_') + "_(Read-Write)_Averages.png");
+
+        if( chart.img != null ) {
+            chart.addChartTitle("Summary", diskModel);
+
+            // Save as PNG
+            try {
+                ImageIO.write(chart.img, "png", chartFile);
+                echoLn("ReadWrite Averages: " + chartFile.getAbsolutePath());
+                // Desktop.getDesktop().open(chartFile);
+            }
+            catch( IOException e ) {
+                System.err.println("Failed to write to " + chartFile + ": " + e.getMessage());
+            }
+        }
+
+        String html = resourceAsString(this, "report-template.html");
+
+        html = html.replace("{disk-model}", diskModel);
+        html = html.replace("{test-size}", String.format(US, "%.0f", chart.dataSizeGb));
+        html = html.replace("{version-info}", versionInfo);
+
+        if( readTest != null )
+            html = html.replace("{read-summary}", readTest.pctls + (readTest.latency != null ? "\n" + readTest.latency : ""));
+        else if( taRead != null )
+            html = html.replace("{read-summary}", String.valueOf(taRead.pctls));
+        else
+            html = html.replace("{read-summary}", "[No read test]");
+
+        html = html.replace("{read-plateaus}", (readTest != null && readTest.plateaus != null) ? readTest.plateaus.toString() : "");
+        html = html.replace("{write-plateaus}", (writeTest != null && writeTest.plateaus != null) ? writeTest.plateaus.toString() : "");
+
+        if( writeTest != null )
+            html = html.replace("{write-summary}", writeTest.pctls + (writeTest.latency != null ? "\n" + writeTest.latency : ""));
+        else if( taWrite != null )
+            html = html.replace("{write-summary}", String.valueOf(taWrite.pctls));
+        else
+            html = html.replace("{write-summary}", "[No write test]");
+
+        html = html.replace("{read-write-chart}", String.format(US, "<img src='%s'/>", chartFile.getName()));
+        html = html.replace("{read-chart}",
+                taRead == null ? ""
+                               : String.format(US, "<img src='%s'/>", taRead.fileName.replace("Average.csv", "Chart.png")));
+        html = html.replace("{write-chart}",
+                taWrite == null ? ""
+                                : String.format(US, "<img src='%s'/>", taWrite.fileName.replace("Average.csv", "Chart.png")));
+
+        File summaryFile = new File(rptDir, diskModel.replace(' ', '_') + "_Summary.html");
+        try {
+            Files.write(summaryFile.toPath(), html.getBytes(UTF_8));
+            echoLn("HTML report: " + summaryFile.getAbsolutePath());
+            Desktop.getDesktop().open(summaryFile);
+        }
+        catch( IOException e ) {
+            System.err.println("Failed to write to " + summaryFile + ": " + e.getMessage());
+        }
+    }
+
+    public String resourceAsString(Object obj, String resourcePath) {
+        Class cls = (obj instanceof Class) ? (Class)obj : obj.getClass();
+        InputStream is = cls.getResourceAsStream(resourcePath);
+        if( is != null ) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, UTF_8));
+            return reader.lines().collect(Collectors.joining(System.lineSeparator()));
+        }
+        return null;
+    }
+
+    /** Writes average performance at 1GB step, returns the averages written */
+    public static float[] buildAverage(String diskModel, File fileAvg, List<Chunk> chunks) {
+        if( chunks.isEmpty() )
+            return new float[0];
+
+        Chunk last = chunks.get(chunks.size() - 1);
+        int iDataSizeGb = Math.max(1, Math.round(last.offsetMb / 1024));
+        StringBuilder captions = new StringBuilder(iDataSizeGb * 5);
+        StringBuilder values = new StringBuilder(iDataSizeGb * 10);
+        Formatter valueF = new Formatter(values);
+        int cBlocksPerGB = chunks.size() / iDataSizeGb;
+        float[] averages = new float[iDataSizeGb];
+
+        captions.append("Offset GB");
+        values.append(diskModel);
+        for( int i = 0; i < iDataSizeGb; i++ ) {
+            int midPos = i * cBlocksPerGB + cBlocksPerGB / 2;
+            int from = Math.max(0, midPos - cBlocksPerGB);
+            int to = Math.min(chunks.size() - 1, midPos + cBlocksPerGB);
+            float sum = 0;
+
+            for( int j = from; j <= to; j++ ) {
+                sum += chunks.get(j).avg;
+            }
+
+            averages[i] = sum / (to - from);
+            captions.append(',').append(i + 1);
+            values.append(','); valueF.format(US, "%.1f", averages[i]);
+        }
+
+        captions.append('\n');
+        values.append('\n');
+        try( OutputStream fos = new FileOutputStream(fileAvg) ) {
+            try( OutputStreamWriter wr = new OutputStreamWriter(fos, UTF_8) ) {
+                wr.write(captions.toString());
+                wr.write(values.toString());
+            }
+            echoLn("CSV report: " + fileAvg.getAbsolutePath());
+
+            Pctls pctls = buildPctls(chunks);
+            echoLn(pctls.toString());
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to " + fileAvg);
+            e.printStackTrace();
+        }
+
+        return averages;
+    }
+
+    static class Latency {
+        static final double[] PCTLS = { 50, 90, 99, 99.9, 99.99 };
+
+        float iops;
+        float[] values = new float[PCTLS.length];
+        float max;
+
+        /** Latency percentiles in ms */
+        static Latency of(LatencyHistogram histogram) {
+            Latency latency = new Latency();
+
+            for( int i = 0; i < PCTLS.length; i++ ) {
+                latency.values[i] = histogram.percentile(PCTLS[i]) / 1e6f;
+            }
+            latency.max = histogram.max / 1e6f;
+
+            return latency;
+        }
+
+        static String label(double pctl) {
+            return "p" + new DecimalFormat("0.##", DecimalFormatSymbols.getInstance(US)).format(pctl);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder str = new StringBuilder();
+            str.append(String.format(US, "     IOPS: %.0f\n", iops));
+            for( int i = 0; i < PCTLS.length; i++ ) {
+                str.append(String.format(US, "%9s: %.3f ms\n", label(PCTLS[i]), values[i]));
+            }
+            str.append(String.format(US, "      max: %.3f ms\n", max));
+            return str.toString();
+        }
+    }
+
+    static class Pctl {
+        int pos;
+        float weight;
+        float sizeGb;
+        float value;
+
+        @Override
+        public String toString() {
+            String str = String.format(US, "%.1f MB/s, %.1f%% (%.1f GB) ", value, weight, sizeGb);
+            return str;
+        }
+    }
+
+    static class Pctls {
+        List<Pctl> avg = new ArrayList<>(3);
+        Pctl max;
+        Pctl min;
+        float allMin;
+        float allAvg;
+        float allMax;
+
+        @Override
+        public String toString() {
+            List<Pctl> avg = new ArrayList<>(this.avg);
+            avg.sort(Comparator.comparing((Pctl pctl) -> pctl.value).reversed());
+
+            String str =
+                    "      avg: " + String.format(US, "%.1f MB/s", allAvg) + '\n' +
+                    "  avg.max: " + avg.get(0) + '\n' +
+                    "      mid: " + avg.get(1) + '\n' +
+                    "      min: " + avg.get(2) + '\n' +
+                    "  typ.max: " + max + '\n' +
+                    "  typ.min: " + min + '\n';
+            return str;
+        }
+    }
+
+    static Pctls buildPctls(List<Chunk> chunks) {
+        Pctls pctls = new Pctls();
+
+        if( chunks.size() < 2 ) {
+            for( int i = 0; i < 3; i++ ) {
+                pctls.avg.add(new Pctl());
+            }
+            return pctls;
+        }
+
+        int cChunks = chunks.size();
+        float sizeGb = chunks.get(1).offsetMb * cChunks / 1024.0f;
+
+        int[] pctlAvg = new int[101];
+        int[] pctlMax = new int[101];
+        int[] pctlMin = new int[101];
+        float allMin = Float.MAX_VALUE, allMax = 0, allAvg = 0;
+
+        for( int x = 0, i = 0; i < cChunks; x++, i++ ) {
+            Chunk c = chunks.get(i);
+            allMin = Math.min(allMin, c.min);
+            allMax = Math.max(allMax, c.max);
+            allAvg += c.avg;
+        }
+        allAvg = allAvg / cChunks;
+
+        float minMaxRange = allMax - allMin;
+        int maxPctl = 5;
+        for( int x = 0, i = 0; i < cChunks; x++, i++ ) {
+            Chunk c = chunks.get(i);
+
+            addPctl(pctlAvg, maxPctl, (int)(100.0 * (c.avg - allMin) / minMaxRange));
+            addPctl(pctlMax, maxPctl, (int)(100.0 * (c.avgMax - allMin) / minMaxRange));
+            addPctl(pctlMin, maxPctl, (int)(100.0 * (c.avgMin - allMin) / minMaxRange));
+        }
+
+        for( int i = 0; i < 3; i++ ) {
+            Pctl pctl = makePctl(sizeGb, chunks, pctlAvg, allMin, minMaxRange, maxPctl);
+            pctls.avg.add(pctl);
+            erasePctl(pctlAvg, pctl.pos, 15);
+        }
+
+        pctls.max = makePctl(sizeGb, chunks, pctlMax, allMin, minMaxRange, maxPctl);
+        pctls.min = makePctl(sizeGb, chunks, pctlMin, allMin, minMaxRange, maxPctl);
+
+        pctls.allMin = allMin;
+        pctls.allAvg = allAvg;
+        pctls.allMax = allMax;
+
+        return pctls;
+    }
+
+    private static Pctl makePctl(float sizeGb, List<Chunk> chunks, int[] pctls, float allMin, float minMaxRange, int maxPctl) {
+        int posOfMaxValue = getMaxPctlPos(pctls);
+        Pctl pctl = new Pctl();
+        float range = minMaxRange * 0.15f;
+
+        pctl.pos = posOfMaxValue;
+        pctl.value = allMin + minMaxRange / 100 * posOfMaxValue;
+
+        pctl.weight = 0;
+        for( Chunk chunk : chunks ) {
+            if( abs(chunk.avg - pctl.value) <= range )
+                pctl.weight += 1;
+        }
+        pctl.weight = 100.0f * pctl.weight / chunks.size();
+        pctl.sizeGb = sizeGb * pctl.weight / 100.0f;
+
+        return pctl;
+    }
+
+    private static int getMaxPctlPos(int[] pctlAvg) {
+        int maxPos = 0;
+        int maxCount = 0;
+        for( int j = 0; j < pctlAvg.length; j++ ) {
+            if( pctlAvg[j] > maxCount ) {
+                maxPos = j;
+                maxCount = pctlAvg[j];
+            }
+        }
+        return maxPos;
+    }
+
+    private static void addPctl(int[] pctls, int maxPtl, int pos) {
+        if( pos < 0 )
+            pos = 0;
+        else if( pos >= pctls.length )
+            pos = pctls.length - 1;
+
+        pctls[pos] += maxPtl;
+        for( int n = 1; n <= maxPtl; n++ ) {
+            int pmin = pos - n;
+            if( pmin >= 0 )
+                pctls[pmin] += (maxPtl - n);
+            int pmax = pos + n;
+            if( pmax < pctls.length )
+                pctls[pmax] += (maxPtl - n);
+        }
+    }
+
+    private static void erasePctl(int[] pctls, int pos, int distance) {
+        if( pos < 0 )
+            pos = 0;
+        else if( pos >= pctls.length )
+            pos = pctls.length - 1;
+
+        int eraseFrom = Math.max(0, pos - distance);
+        int eraseTo = Math.min(pctls.length - 1, pos + distance);
+        for( int j = eraseFrom; j <= eraseTo; j++ ) {
+            pctls[j] = 0;
+        }
+    }
+
+    static class Chunk {
+        float offsetMb;
+        float min;
+        float avgMin;
+        float avg;
+        float avgMax;
+        float max;
+        float submitMs;     // average time of write call per block
+        float syncMs;       // average time of sync per block
+        float rateMb;       // achieved rate, data over wall time of the chunk
+        float latP50Ms;     // latency percentiles, from the time blocks were due when paced
+        float latP99Ms;
+        float latMaxMs;
+        float tempC;        // drive temperature, 0 if not sampled
+
+        public Chunk(float offsetMb, float avg) {
+            this.offsetMb = offsetMb;
+            this.min = this.avgMin = this.avg = this.avgMax = this.max = avg;
+        }
+
+        public Chunk(float offsetMb, float min, float avgMin, float avg, float avgMax, float max) {
+            this.offsetMb = offsetMb;
+            this.min = min;
+            this.avgMin = avgMin;
+            this.avg = avg;
+            this.avgMax = avgMax;
+            this.max = max;
+        }
+    }
+}
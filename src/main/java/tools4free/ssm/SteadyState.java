@@ -0,0 +1,82 @@
+package tools4free.ssm;
+
+import java.util.ArrayDeque;
+
+/**
+ * Steady state detection in the spirit of SNIA PTS: throughput is measured in rounds of one second,
+ * steady state is reached when, over a window of {@code config.swin} seconds, all rounds stay within
+ * {@code config.stol} percent of the window average and the trend over the window (least squares slope)
+ * moves the throughput by no more than half of that.
+ */
+public class SteadyState {
+    static final long ROUND_NS = 1_000_000_000L;
+
+    final int cRounds;
+    final float tolerance;
+    final ArrayDeque<Float> rounds = new ArrayDeque<>();
+
+    long roundStarted;
+    long roundBytes;
+    long totalBytes;
+
+    boolean reached;
+    float perfMb;       // average of the window, once reached
+    float reachedGb;    // data written until reached
+
+    SteadyState(Config config) {
+        cRounds = Math.max(2, config.swin);
+        tolerance = config.stol / 100f;
+    }
+
+    /** Adds block written by {@code nowNs}, returns true once steady state is reached */
+    boolean add(long bytes, long nowNs) {
+        if( reached )
+            return true;
+
+        if( roundStarted == 0 )
+            roundStarted = nowNs;
+
+        roundBytes += bytes;
+        totalBytes += bytes;
+        if( nowNs - roundStarted < ROUND_NS )
+            return false;
+
+        rounds.addLast((float)(roundBytes / ((nowNs - roundStarted) / 1e9) / SsdSlowMark.MB));
+        if( rounds.size() > cRounds )
+            rounds.removeFirst();
+
+        roundStarted = nowNs;
+        roundBytes = 0;
+
+        if( rounds.size() == cRounds && isSteady() ) {
+            reached = true;
+            reachedGb = (float)totalBytes / SsdSlowMark.GB;
+        }
+
+        return reached;
+    }
+
+    private boolean isSteady() {
+        double sum = 0, sumXY = 0, sumX = 0, sumXX = 0;
+        float min = Float.MAX_VALUE, max = 0;
+        int x = 0;
+
+        for( float perf : rounds ) {
+            min = Math.min(min, perf);
+            max = Math.max(max, perf);
+            sum += perf;
+            sumX += x;
+            sumXX += x * x;
+            sumXY += x * perf;
+            x++;
+        }
+
+        double avg = sum / x;
+        double slope = (x * sumXY - sumX * sum) / (x * sumXX - sumX * sumX);
+
+        perfMb = (float)avg;
+        return (max - avg) <= avg * tolerance
+            && (avg - min) <= avg * tolerance
+            && Math.abs(slope * (x - 1)) <= avg * tolerance / 2;
+    }
+}
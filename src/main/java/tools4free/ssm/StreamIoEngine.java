@@ -0,0 +1,100 @@
+package tools4free.ssm;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * Classic stream I/O via heap byte arrays, data is transferred sequentially.
+ * Files opened for update are written in place via {@link RandomAccessFile}.
+ */
+public class StreamIoEngine extends IoEngine {
+    FileOutputStream fos;
+    FileInputStream fis;
+    RandomAccessFile raf;
+
+    StreamIoEngine(Config config, File root) {
+        super(config, root);
+    }
+
+    @Override
+    ByteBuffer allocate(int size) {
+        return ByteBuffer.wrap(new byte[size]);
+    }
+
+    @Override
+    IoEngine openWrite(File file) throws IOException {
+        this.file = file;
+        fos = new FileOutputStream(file);
+        return this;
+    }
+
+    @Override
+    IoEngine openRead(File file) throws IOException {
+        this.file = file;
+        fis = new FileInputStream(file);
+        return this;
+    }
+
+    @Override
+    IoEngine openUpdate(File file) throws IOException {
+        if( !file.isFile() )
+            throw new NoSuchFileException(file.toString());
+
+        this.file = file;
+        raf = new RandomAccessFile(file, "rw");
+        return this;
+    }
+
+    @Override
+    void write(ByteBuffer data, long pos) throws IOException {
+        if( raf != null ) {
+            raf.seek(pos);
+            raf.write(data.array(), data.arrayOffset(), data.capacity());
+        }
+        else {
+            fos.write(data.array(), data.arrayOffset(), data.capacity());
+        }
+    }
+
+    @Override
+    int read(ByteBuffer data, long pos) throws IOException {
+        if( raf != null ) {
+            raf.seek(pos);
+            return raf.read(data.array(), data.arrayOffset(), data.capacity());
+        }
+        return fis.read(data.array(), data.arrayOffset(), data.capacity());
+    }
+
+    @Override
+    void sync() throws IOException {
+        if( raf != null ) {
+            raf.getFD().sync();
+        }
+        else {
+            fos.flush();
+            fos.getFD().sync();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if( fos != null )
+                fos.close();
+            if( fis != null )
+                fis.close();
+            if( raf != null )
+                raf.close();
+        }
+        finally {
+            fos = null;
+            fis = null;
+            raf = null;
+        }
+    }
+}
@@ -1,13 +1,13 @@
-package tools4free.ssm;
-
-import tools4free.ssm.ResultsWriter.Chunk;
-
-import java.util.List;
-
-public class TestAverages {
-    public String diskModel;
-    public String testKind;
-    public List<Chunk> chunks;
-    ResultsWriter.Pctls pctls;
-    String fileName;
-}
+package tools4free.ssm;
+
+import tools4free.ssm.ResultsWriter.Chunk;
+
+import java.util.List;
+
+public class TestAverages {
+    public String diskModel;
+    public String testKind;
+    public List<Chunk> chunks;
+    ResultsWriter.Pctls pctls;
+    String fileName;
+}
@@ -1,76 +1,425 @@
-package tools4free.ssm;
-
-import java.io.File;
-
-import static tools4free.ssm.SsdSlowMark.si;
-
-public class TestCase extends Thread  {
-    String testKind;
-    Config config;
-    TestCase waitFor;
-    boolean stop;
-
-    File root;
-    long freeSpaceAtStart;
-    long totalSpace;
-
-    boolean finished;
-    float[] blocks;
-    int cBlocks;
-
-    long startTime;
-    long stopTime;
-    long elapsedMs;
-
-    String diskModel;
-    float dataSizeGb;
-    ResultsWriter.Pctls pctls;
-
-    public TestCase(String testKind, Config config, File root, TestCase waitFor) {
-        super(testKind);
-        this.testKind = testKind;
-        this.config = config;
-        this.root = root;
-        this.waitFor = waitFor;
-
-        freeSpaceAtStart = SsdSlowMark.si.diskFreeSpace(root);
-        totalSpace = SsdSlowMark.si.diskTotalSpace(root);
-        diskModel = si.getDriveModel(root, "Unknown Model");
-    }
-
-    boolean doWaitFor() {
-        if( waitFor != null ) {
-            while( !waitFor.finished ) {
-                if( stop )
-                    return false;
-
-                try {
-                    Thread.sleep(10);
-                }
-                catch( InterruptedException e ) {
-                    return false;
-                }
-            }
-        }
-        return !stop;
-    }
-
-    protected static void printPerf(String kind, File file, long fileStarted, long fileMB,
-                                    double perfMin, double perfMax) {
-        printPerf(kind, file, fileStarted, fileMB, perfMin, perfMax, -1, -1);
-    }
-
-    protected static void printPerf(String kind, File file, long fileStarted, long fileMB,
-                                    double perfMin, double perfMax, long nBlk, double pct) {
-        long fileNow = System.nanoTime();
-        float fileSec = (fileNow - fileStarted) / SsdSlowMark.NANO_SEC;
-        float filePerfMb = fileMB / fileSec / SsdSlowMark.MB;
-
-        SsdSlowMark.echo("              \r");
-        SsdSlowMark.echo("%s: %s = %6.1f MB/s, min = %6.1f MB/s, max = %6.1f MB/s",
-                         kind, file, filePerfMb, perfMin, perfMax);
-
-        if( pct > 0 )
-            SsdSlowMark.echo(" - #%s %.1f%%", nBlk, 100 * pct);
-    }
-}
+package tools4free.ssm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static tools4free.ssm.SsdSlowMark.echoLn;
+import static tools4free.ssm.SsdSlowMark.si;
+
+public class TestCase extends Thread  {
+    static final Pattern TEST_FILE = Pattern.compile("file-[0-9]{6}\\.bin");
+
+    String testKind;
+    Config config;
+    TestCase waitFor;
+    volatile boolean stop;
+
+    File root;
+    long freeSpaceAtStart;
+    long totalSpace;
+
+    boolean finished;
+    long cBlocks;
+    BlockRecorder blocks;           // every block, with blocks=true
+    ChunkAggregator chunks;
+    Timeline timeline;              // blocks by wall-clock time, with tl > 0
+    DataGenerator generator;        // content of written blocks, none for reads
+    SteadyState steady;             // stops the test once throughput is steady, with until=steady
+    Pacer pacer;                    // schedule of block operations with rate= or iops=, none when flat-out
+    final LiveMetrics live = new LiveMetrics();
+    DiskStats diskStats;            // kernel statistics of the tested device, Linux only
+    DriveTemp driveTemp;            // temperature of the tested drive, Linux only
+    boolean samplersStarted;
+
+    Job[] jobs = new Job[0];
+    LatencyHistogram latencies = new LatencyHistogram();
+    LatencyHistogram syncLatencies = new LatencyHistogram();
+    long writeNs;
+    long syncNs;
+
+    long startTime;
+    long stopTime;
+    long elapsedMs;
+
+    String diskModel;
+    float dataSizeGb;
+    ResultsWriter.Pctls pctls;
+    Plateaus plateaus;
+    ResultsWriter.Latency latency;
+
+    public TestCase(String testKind, Config config, File root, TestCase waitFor) {
+        super(testKind);
+        this.testKind = testKind;
+        this.config = config;
+        this.root = root;
+        this.waitFor = waitFor;
+
+        chunks = new ChunkAggregator(config.iw - config.ip * 2, config.bs / (float)SsdSlowMark.KB);
+        freeSpaceAtStart = SsdSlowMark.si.diskFreeSpace(root);
+        totalSpace = SsdSlowMark.si.diskTotalSpace(root);
+        diskModel = si.getDriveModel(root, "Unknown Model");
+    }
+
+    /** Whether the file is one of the files created by tests, as opposed to a file of the user */
+    static boolean isTestFile(File file) {
+        return TEST_FILE.matcher(file.getName()).matches();
+    }
+
+    /** Removes files created by the test */
+    void cleanup() {
+    }
+
+    boolean doWaitFor() {
+        if( waitFor != null ) {
+            while( !waitFor.finished ) {
+                if( stop )
+                    return false;
+
+                try {
+                    Thread.sleep(10);
+                }
+                catch( InterruptedException e ) {
+                    return false;
+                }
+            }
+        }
+        return !stop;
+    }
+
+    /** One of {@code config.jobs} workers of the test and its own statistics */
+    static class Job {
+        final int n;
+        int cFiles;
+        long cBlocks;
+        float perfMin = Float.MAX_VALUE;
+        float perfMax = 0;
+        long startTime;
+        long stopTime;
+
+        Job(int n) {
+            this.n = n;
+        }
+
+        float perfMb(Config config) {
+            float sec = (stopTime - startTime) / 1000.0f;
+            return (sec <= 0) ? 0 : (float)((double)cBlocks * config.bs * SsdSlowMark.KB / SsdSlowMark.MB / sec);
+        }
+    }
+
+    interface JobBody {
+        void run(Job job) throws Exception;
+    }
+
+    /**
+     * Runs {@code config.jobs} workers, each on own thread when there is more than one.
+     * Blocks of all workers are merged into the same series in order of completion.
+     */
+    void runJobs(JobBody body) throws Exception {
+        startSamplers();
+
+        jobs = new Job[config.jobs];
+        Exception[] failed = new Exception[1];
+        Thread[] threads = new Thread[jobs.length];
+
+        for( int i = 0; i < jobs.length; i++ ) {
+            Job job = jobs[i] = new Job(i);
+            threads[i] = new Thread(() -> {
+                job.startTime = System.currentTimeMillis();
+                try {
+                    body.run(job);
+                }
+                catch( Exception e ) {
+                    failed[0] = e;
+                    stop = true;
+                }
+                job.stopTime = System.currentTimeMillis();
+            }, getName() + "-job-" + i);
+        }
+
+        if( threads.length == 1 )
+            threads[0].run();
+        else {
+            for( Thread thread : threads ) {
+                thread.start();
+            }
+            for( Thread thread : threads ) {
+                thread.join();
+            }
+        }
+
+        if( failed[0] != null )
+            throw failed[0];
+    }
+
+    /** Starts samplers of the tested device, once per test */
+    private void startSamplers() {
+        if( samplersStarted )
+            return;
+
+        samplersStarted = true;
+        BlockDevice device = BlockDevice.of(root);
+        if( device != null )
+            echoLn("  Block device: %s", device);
+
+        diskStats = DiskStats.start(this, device);
+        driveTemp = DriveTemp.start(this, device);
+        if( driveTemp != null )
+            echoLn("  Temperature: %s, %.1f C", driveTemp.input, DriveTemp.read(driveTemp.input));
+    }
+
+    /** Block operation recorded by {@code series}, returning time spent in sync, ns */
+    interface BlockOp {
+        long run(TestCase series, ByteBuffer data, long pos) throws IOException;
+    }
+
+    /**
+     * Runs {@code cFileBlocks} block operations against one file keeping one operation
+     * in flight per buffer, each buffer is served by own thread doing positional I/O.
+     */
+    void runQueued(String kind, Job job, File file, ByteBuffer[] buffers, long cFileBlocks, BlockOp op) throws Exception {
+        runQueued(kind, job, file, buffers, cFileBlocks, () -> this, op);
+    }
+
+    /**
+     * Same as above, with the series every block is recorded by picked before the block: the test itself,
+     * or another test sharing the queue (reads of test=mixed). Blocks of a series with a generator are written.
+     */
+    void runQueued(String kind, Job job, File file, ByteBuffer[] buffers, long cFileBlocks,
+                   Supplier<TestCase> seriesOf, BlockOp op) throws Exception {
+        int blockSize = buffers[0].capacity();
+        float blockSizeMb = blockSize / (float)SsdSlowMark.MB;
+        AtomicLong nextBlock = new AtomicLong();
+        AtomicLong fileMB = new AtomicLong();
+        Exception[] failed = new Exception[1];
+        Thread[] workers = new Thread[buffers.length];
+        float[] filePerf = { Float.MAX_VALUE, Float.MIN_VALUE };
+        long fileStarted = System.nanoTime();
+
+        for( int i = 0; i < workers.length; i++ ) {
+            ByteBuffer data = buffers[i];
+            workers[i] = new Thread(() -> {
+                try {
+                    for( long n; !stop && (n = nextBlock.getAndIncrement()) < cFileBlocks; ) {
+                        TestCase series = seriesOf.get();
+                        DataGenerator generator = series.generator;
+                        ByteBuffer block = (generator != null) ? generator.next(data) : data;
+                        long due = pace();
+                        long started = System.nanoTime();
+                        long syncNs;
+                        {
+                            syncNs = op.run(series, block, n * blockSize);
+                        }
+                        long finished = System.nanoTime();
+
+                        if( generator != null )
+                            generator.release(block);
+
+                        float sec = (finished - started) / SsdSlowMark.NANO_SEC;
+                        float perfBlock = blockSizeMb / sec;
+                        series.addBlock((series == this) ? job : series.jobs[job.n], perfBlock, due, started, finished, syncNs);
+                        fileMB.addAndGet(blockSize);
+                        synchronized( filePerf ) {
+                            filePerf[0] = min(filePerf[0], perfBlock);
+                            filePerf[1] = max(filePerf[1], perfBlock);
+                        }
+                    }
+                }
+                catch( Exception e ) {
+                    failed[0] = e;
+                    stop = true;
+                }
+            }, Thread.currentThread().getName() + "-qd-" + i);
+            workers[i].start();
+        }
+
+        for( Thread worker : workers ) {
+            while( worker.isAlive() ) {
+                worker.join(100);
+                synchronized( filePerf ) {
+                    long n = Math.min(nextBlock.get(), cFileBlocks);
+                    printPerf(kind, file, fileStarted, fileMB.get(), filePerf[0], filePerf[1], n, n / (double)cFileBlocks);
+                }
+            }
+        }
+
+        if( failed[0] != null )
+            throw failed[0];
+
+        printPerf(kind, file, fileStarted, fileMB.get(), filePerf[0], filePerf[1]);
+    }
+
+    /** Waits for the next block to be due with rate= or iops=, returns the time it is due at */
+    long pace() {
+        return (pacer != null) ? pacer.await() : System.nanoTime();
+    }
+
+    /**
+     * Adds block due at {@code due} and done from {@code started} to {@code finished},
+     * of which {@code syncNs} was spent in sync after the write. Latency counts from the time
+     * the block was due, which is later than its start only when the test is paced.
+     */
+    void addBlock(Job job, float perf, long due, long started, long finished, long syncNs) throws IOException {
+        live.add(config.bs * (long)SsdSlowMark.KB, finished - due);
+
+        synchronized( this ) {
+            if( cBlocks++ == 0 ) {
+                if( config.tl > 0 )
+                    timeline = new Timeline(config, due);
+                if( config.blocks )
+                    blocks = new BlockRecorder(testKind, due);
+            }
+
+            if( blocks != null )
+                blocks.add(perf, finished - due, finished);
+            if( timeline != null )
+                timeline.add(perf, finished - due, finished);
+            chunks.add(perf, finished - started - syncNs, syncNs, finished - due, finished);
+            latencies.record(finished - due);
+            job.cBlocks++;
+            job.perfMin = min(job.perfMin, perf);
+            job.perfMax = max(job.perfMax, perf);
+            if( steady != null && steady.add(config.bs * (long)SsdSlowMark.KB, System.nanoTime()) )
+                stop = true;
+        }
+    }
+
+    /** Prints target and achieved rate of the paced test */
+    void echoPacing() {
+        if( pacer == null )
+            return;
+
+        echoLn("  Paced: target %.1f MB/s, achieved %.1f MB/s, %.0f IOPS, latency p50 = %.3f ms, p99 = %.3f ms, max = %.3f ms",
+               pacer.rateMb(config), totalPerfMb(), iops(),
+               latencies.percentile(50) / 1e6, latencies.percentile(99) / 1e6, latencies.max / 1e6);
+    }
+
+    synchronized void addTemperature(float tempC) {
+        chunks.temperature(tempC);
+    }
+
+    /** Generator of written blocks for up to {@code config.jobs * config.qd} blocks in flight */
+    DataGenerator createGenerator() {
+        return new DataGenerator(config, size -> IoEngine.create(config, root).allocate(size), config.jobs * config.qd);
+    }
+
+    /**
+     * Writes block and syncs it according to {@code config.sync}, time of write and sync is recorded apart.
+     * Returns time spent in sync, ns.
+     */
+    long writeBlock(IoEngine io, ByteBuffer data, long pos) throws IOException {
+        long started = System.nanoTime();
+        io.write(data, pos);
+        long written = System.nanoTime();
+
+        // bytes are counted once written, so the sync of the block covers every block counted before
+        boolean syncDue;
+        synchronized( io ) {
+            io.unsynced += data.capacity();
+            syncDue = config.isSyncDue(io.unsynced);
+            if( syncDue )
+                io.unsynced = 0;
+        }
+
+        if( !syncDue ) {
+            addSync(written - started, -1);
+            return 0;
+        }
+
+        io.sync();
+        long syncNs = System.nanoTime() - written;
+        addSync(written - started, syncNs);
+        return syncNs;
+    }
+
+    /**
+     * Syncs data left unsynced once writes to the file are done, with sync=file or sync=&lt;KB&gt;.
+     * Called after all blocks of the file are complete, i.e. after workers of the queue are joined.
+     */
+    void syncFile(IoEngine io) throws IOException {
+        boolean unsynced;
+        synchronized( io ) {
+            unsynced = io.unsynced > 0;
+            io.unsynced = 0;
+        }
+
+        if( !unsynced || !config.isSyncAtEnd() )
+            return;
+
+        long started = System.nanoTime();
+        io.sync();
+        addSync(0, System.nanoTime() - started);
+    }
+
+    synchronized void addSync(long writeNs, long syncNs) {
+        this.writeNs += writeNs;
+        if( syncNs >= 0 ) {
+            this.syncNs += syncNs;
+            syncLatencies.record(syncNs);
+        }
+    }
+
+    /** Prints time spent in writes and in syncs */
+    void echoSync() {
+        echoLn("  sync=%s: write %.3f s, sync %.3f s in %s calls",
+               config.sync, writeNs / SsdSlowMark.NANO_SEC, syncNs / SsdSlowMark.NANO_SEC, syncLatencies.total);
+    }
+
+    /** Sets width of chunks for the number of blocks the test is going to do */
+    synchronized void expectBlocks(long cExpected) {
+        chunks.expect(cExpected);
+    }
+
+    /** Chunks of blocks done so far, available while the test is running */
+    synchronized List<ResultsWriter.Chunk> chunks() {
+        return chunks.chunks();
+    }
+
+    /**
+     * Stops samplers of the tested device once the test is done, so no samples are added after it.
+     * Not synchronized, samplers call back into the test while sampling.
+     */
+    void stopSamplers() {
+        if( diskStats != null )
+            diskStats.stop();
+        if( driveTemp != null )
+            driveTemp.stop();
+    }
+
+    /** Total throughput of the test, all data over elapsed time */
+    float totalPerfMb() {
+        float sec = elapsedMs / 1000.0f;
+        return (sec <= 0) ? 0 : (float)((double)cBlocks * config.bs * SsdSlowMark.KB / SsdSlowMark.MB / sec);
+    }
+
+    /** Block operations per second over the whole test */
+    float iops() {
+        float sec = elapsedMs / 1000.0f;
+        return (sec <= 0) ? 0 : cBlocks / sec;
+    }
+
+    protected static void printPerf(String kind, File file, long fileStarted, long fileMB,
+                                    double perfMin, double perfMax) {
+        printPerf(kind, file, fileStarted, fileMB, perfMin, perfMax, -1, -1);
+    }
+
+    protected static void printPerf(String kind, File file, long fileStarted, long fileMB,
+                                    double perfMin, double perfMax, long nBlk, double pct) {
+        long fileNow = System.nanoTime();
+        float fileSec = (fileNow - fileStarted) / SsdSlowMark.NANO_SEC;
+        float filePerfMb = fileMB / fileSec / SsdSlowMark.MB;
+
+        SsdSlowMark.echo("              \r");
+        SsdSlowMark.echo("%s: %s = %6.1f MB/s, min = %6.1f MB/s, max = %6.1f MB/s",
+                         kind, file, filePerfMb, perfMin, perfMax);
+
+        if( pct > 0 )
+            SsdSlowMark.echo(" - #%s %.1f%%", nBlk, 100 * pct);
+    }
+}
@@ -0,0 +1,124 @@
+package tools4free.ssm;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static tools4free.ssm.SsdSlowMark.*;
+
+/**
+ * Random reads and writes at the same time over the set of files in the test directory,
+ * e.g. hot data served while compaction writes. Every block operation is a read with probability
+ * of {@code config.rmix} percent, reads and writes share the queues of the jobs.
+ * Writes are recorded by the test itself and reads by {@link #reads}, so both get own series and report.
+ */
+public class TestMixed extends TestRandom {
+    final TestCase reads;
+
+    public TestMixed(Config config) {
+        super("MixedWrite", config, true, null);
+        reads = new TestCase("MixedRead", config, root, null);
+    }
+
+    @Override
+    public void run() {
+        if( !doWaitFor() ) {
+            reads.finished = finished = true;
+            return;
+        }
+
+        int blockSize = config.bs * KB;
+
+        echoLn("Mixed reader/writer:");
+        echoLn("  Block size: %s KB, reads = %s%%", config.bs, config.rmix);
+        echoLn("  I/O engine: %s, qd = %s, jobs = %s, sync = %s", config.engine, config.qd, config.jobs, config.sync);
+        echoLn("  Data: %s, prefill = %s", config.data, config.prefill);
+        if( config.rate > 0 || config.iops > 0 )
+            echoLn("  Paced: rate = %s MB/s, iops = %s", config.rate, config.iops);
+        echoLn("  Root dir: %s", root.getAbsolutePath());
+        echoLn("  Disk model: %s", diskModel);
+        echoLn("--------------------------------------");
+
+        FilePool pool = null;
+        generator = createGenerator();
+
+        try {
+            List<File> files = listFiles(blockSize);
+            if( files.isEmpty() ) {
+                prepareFiles();
+                files = listFiles(blockSize);
+            }
+
+            if( files.isEmpty() ) {
+                echoLn("  No files to test in %s", root.getAbsolutePath());
+            }
+            else {
+                long[] firstBlocks = new long[files.size()];
+                long cAllBlocks = 0;
+
+                for( int i = 0; i < firstBlocks.length; i++ ) {
+                    firstBlocks[i] = cAllBlocks;
+                    cAllBlocks += files.get(i).length() / blockSize;
+                }
+
+                long cOps = (config.ops > 0) ? config.ops : cAllBlocks;
+                long cTotalBlocks = cAllBlocks;
+                FilePool filePool = pool = new FilePool(this, files, true);
+
+                echoLn("  Files: %s, blocks: %s, operations: %s", files.size(), cAllBlocks, cOps);
+
+                expectBlocks(cOps * (100 - config.rmix) / 100);
+                reads.expectBlocks(cOps * config.rmix / 100);
+                reads.jobs = new Job[config.jobs];
+                for( int i = 0; i < reads.jobs.length; i++ ) {
+                    reads.jobs[i] = new Job(i);
+                }
+
+                live.file = reads.live.file = root;
+                pacer = Pacer.of(config);
+                startTime = reads.startTime = System.currentTimeMillis();
+                runJobs(job -> {
+                    long cJobOps = cOps / config.jobs + ((job.n < cOps % config.jobs) ? 1 : 0);
+                    Job readJob = reads.jobs[job.n];
+                    ByteBuffer[] buffers = allocateBuffers(IoEngine.create(config, root), blockSize);
+
+                    readJob.startTime = job.startTime;
+                    runQueued("Mixed", job, root, buffers, cJobOps,
+                              () -> (ThreadLocalRandom.current().nextInt(100) < config.rmix) ? reads : this,
+                              randomOp(filePool, firstBlocks, cTotalBlocks));
+                    readJob.stopTime = System.currentTimeMillis();
+                    echoLn("                       ");
+                });
+
+                filePool.syncAll();
+            }
+        }
+        catch( Exception e ) {
+            e.printStackTrace();
+        }
+        finally {
+            if( pool != null )
+                pool.close();
+            generator.close();
+        }
+
+        stopTime = reads.stopTime = System.currentTimeMillis();
+        elapsedMs = reads.elapsedMs = (startTime == 0) ? 0 : stopTime - startTime;
+        stopSamplers();
+        reads.stopSamplers();
+
+        echoLn("Mixed test complete, read %.1f MB/s, %.0f IOPS, write %.1f MB/s, %.0f IOPS",
+               reads.totalPerfMb(), reads.iops(), totalPerfMb(), iops());
+        echoLn("  Read latency: p50 = %.3f ms, p99 = %.3f ms, max = %.3f ms",
+               reads.latencies.percentile(50) / 1e6, reads.latencies.percentile(99) / 1e6, reads.latencies.max / 1e6);
+        echoSync();
+        if( pacer != null )
+            echoLn("  Paced: target %.1f MB/s, achieved %.1f MB/s", pacer.rateMb(config), reads.totalPerfMb() + totalPerfMb());
+        echoLn("");
+        echoLn("");
+
+        reads.finished = true;
+        finished = true;
+    }
+}
@@ -0,0 +1,209 @@
+package tools4free.ssm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.Locale.US;
+import static tools4free.ssm.SsdSlowMark.*;
+
+/**
+ * Random block reads or writes over the set of test files ({@code file-NNNNNN.bin}) in the test
+ * directory, the set of {@code fc} files of {@code fs} MB is created first if there is none.
+ * Other files of the directory are never touched.
+ */
+public class TestRandom extends TestCase {
+    boolean write;
+    List<File> createdFiles = new ArrayList<>();
+
+    public TestRandom(Config config, boolean write, TestCase waitFor) {
+        this(write ? "RandWrite" : "RandRead", config, write, waitFor);
+    }
+
+    protected TestRandom(String testKind, Config config, boolean write, TestCase waitFor) {
+        super(testKind, config, new File(write ? config.out : config.in), waitFor);
+        this.write = write;
+    }
+
+    @Override
+    public void run() {
+        if( !doWaitFor() ) {
+            finished = true;
+            return;
+        }
+
+        int blockSize = config.bs * KB;
+
+        echoLn("Random %s:", write ? "writer" : "reader");
+        echoLn("  Block size: %s KB", config.bs);
+        echoLn("  I/O engine: %s, qd = %s, jobs = %s", config.engine, config.qd, config.jobs);
+        if( write )
+            echoLn("  Data: %s, prefill = %s", config.data, config.prefill);
+        if( config.rate > 0 || config.iops > 0 )
+            echoLn("  Paced: rate = %s MB/s, iops = %s", config.rate, config.iops);
+        echoLn("  Root dir: %s", root.getAbsolutePath());
+        echoLn("  Disk model: %s", diskModel);
+        echoLn("--------------------------------------");
+
+        FilePool pool = null;
+        if( write )
+            generator = createGenerator();
+
+        try {
+            List<File> files = listFiles(blockSize);
+            if( files.isEmpty() && write ) {
+                prepareFiles();
+                files = listFiles(blockSize);
+            }
+
+            if( files.isEmpty() ) {
+                echoLn("  No files to test in %s", root.getAbsolutePath());
+            }
+            else {
+                // first block of every file, block number picked at random is mapped back to the file
+                long[] firstBlocks = new long[files.size()];
+                long cAllBlocks = 0;
+
+                for( int i = 0; i < firstBlocks.length; i++ ) {
+                    firstBlocks[i] = cAllBlocks;
+                    cAllBlocks += files.get(i).length() / blockSize;
+                }
+
+                long cOps = (config.ops > 0) ? config.ops : cAllBlocks;
+                long cTotalBlocks = cAllBlocks;
+                FilePool filePool = pool = new FilePool(this, files, write);
+
+                echoLn("  Files: %s, blocks: %s, operations: %s", files.size(), cAllBlocks, cOps);
+
+                expectBlocks(cOps);
+                live.file = root;
+                pacer = Pacer.of(config);
+                startTime = System.currentTimeMillis();
+                runJobs(job -> {
+                    long cJobOps = cOps / config.jobs + ((job.n < cOps % config.jobs) ? 1 : 0);
+                    ByteBuffer[] buffers = allocateBuffers(IoEngine.create(config, root), blockSize);
+
+                    runQueued(testKind, job, root, buffers, cJobOps, randomOp(filePool, firstBlocks, cTotalBlocks));
+                    echoLn("                       ");
+                });
+
+                if( write )
+                    filePool.syncAll();
+            }
+        }
+        catch( Exception e ) {
+            e.printStackTrace();
+        }
+        finally {
+            if( pool != null )
+                pool.close();
+            if( generator != null )
+                generator.close();
+        }
+
+        stopTime = System.currentTimeMillis();
+        elapsedMs = (startTime == 0) ? 0 : stopTime - startTime;
+        stopSamplers();
+
+        echoLn("%s test complete, %.1f MB/s, %.0f IOPS", testKind, totalPerfMb(), iops());
+        if( write )
+            echoSync();
+        echoPacing();
+        echoLn("");
+        echoLn("");
+
+        finished = true;
+    }
+
+    /** Number of the file the block belongs to, by the first block of every file */
+    static int fileOf(long[] firstBlocks, long block) {
+        int nFile = Arrays.binarySearch(firstBlocks, block);
+        return (nFile < 0) ? -nFile - 2 : nFile;
+    }
+
+    /**
+     * Operation on a block picked at random from all files, written when the series it's recorded by
+     * generates data and read otherwise. Position given by the queue is ignored.
+     */
+    BlockOp randomOp(FilePool pool, long[] firstBlocks, long cTotalBlocks) {
+        int blockSize = config.bs * KB;
+
+        return (series, data, pos) -> {
+            long block = ThreadLocalRandom.current().nextLong(cTotalBlocks);
+            int nFile = fileOf(firstBlocks, block);
+            long filePos = (block - firstBlocks[nFile]) * blockSize;
+            IoEngine io = pool.acquire(nFile);
+            try {
+                if( series.generator != null )
+                    return writeBlock(io, data, filePos);
+
+                io.read(data, filePos);
+                return 0;
+            }
+            finally {
+                pool.release(nFile);
+            }
+        };
+    }
+
+    ByteBuffer[] allocateBuffers(IoEngine engine, int blockSize) {
+        ByteBuffer[] buffers = new ByteBuffer[config.qd];
+
+        for( int n = 0; n < buffers.length; n++ ) {
+            buffers[n] = engine.allocate(blockSize);
+            if( write )
+                generator.init(buffers[n]);
+        }
+
+        return buffers;
+    }
+
+    List<File> listFiles(int blockSize) {
+        List<File> files = new ArrayList<>();
+        File[] all = root.listFiles();
+
+        if( all != null ) {
+            for( File file : all ) {
+                if( file.isFile() && isTestFile(file) && file.length() >= blockSize )
+                    files.add(file);
+            }
+        }
+
+        return files;
+    }
+
+    /** Creates the file set without measurement */
+    void prepareFiles() throws IOException, InterruptedException {
+        IoEngine engine = IoEngine.create(config, root);
+        ByteBuffer data = allocateBuffers(engine, config.bs * KB)[0];
+        long fileSizeLim = (long)config.fs * MB;
+
+        root.mkdirs();
+        for( int i = 1; !stop && i <= config.fc; i++ ) {
+            File file = new File(root, String.format(US, "file-%06d.bin", i));
+            echo("  Preparing %s ...\r", file);
+
+            try( IoEngine io = engine.openWrite(file) ) {
+                createdFiles.add(file);
+                for( long pos = 0; !stop && pos < fileSizeLim; pos += data.capacity() ) {
+                    ByteBuffer block = generator.next(data);
+                    io.write(block, pos);
+                    generator.release(block);
+                }
+                io.sync();
+            }
+        }
+        echoLn("");
+    }
+
+    @Override
+    void cleanup() {
+        for( File file : createdFiles ) {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package tools4free.ssm;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Locale.US;
+import static tools4free.ssm.SsdSlowMark.*;
+
+/**
+ * Idle recovery of the write cache: files are written past the cliff as by the write test,
+ * then for every {@code config.idle} interval the drive idles and the files are rewritten
+ * in place while throughput stays at cache speed, which tells how much cache was recovered.
+ * Cache speed is the first plateau of the fill, data counts as recovered while windows
+ * of 256 MB are written faster than the midpoint between cache speed and the speed after the cliff.
+ * Fill and rewrites write one block at a time (qd=1, jobs=1), so their speeds compare.
+ */
+public class TestRecovery extends TestWriter {
+    static final long WINDOW = 256L * MB;
+
+    List<Round> rounds = new ArrayList<>();
+    long idleMs;                        // time spent idle, not counted in elapsed time
+
+    static class Round {
+        int idleSec;
+        float recoveredGb;
+        float perfMb;
+    }
+
+    public TestRecovery(Config config) {
+        super("WriteRecovery", config);
+    }
+
+    @Override
+    public void run() {
+        if( !doWaitFor() )
+            return;
+
+        removeStaleFiles();
+
+        echoLn("Idle recovery:");
+        echoLn("  File count: %s", config.fc);
+        echoLn("  File size: %s MB", config.fs);
+        echoLn("  Block size: %.1f MB", config.bs / 1024.0);
+        echoLn("  Idle: %s sec", config.idle);
+        echoLn("  Alloc: %s", config.alloc);
+        echoLn("  Root dir: %s", root.getAbsolutePath());
+        echoLn("  Disk model: %s", diskModel);
+        echoLn("--------------------------------------");
+
+        generator = createGenerator();
+        startTime = System.currentTimeMillis();
+        try {
+            long fileSizeLim = (long)config.fs * MB;
+            int blockSize = config.bs * KB;
+
+            prepare(fileSizeLim);
+            expectBlocks(config.fc * ((fileSizeLim + blockSize - 1) / blockSize));
+            runJobs(this::writeFiles);
+
+            Plateaus plateaus = Plateaus.of(chunks());
+            if( plateaus.list.size() < 2 ) {
+                echoLn("  No cliff found, write more data (fc, fs) to get past the cache");
+            }
+            else {
+                float cacheMb = plateaus.list.get(0).perfMb;
+                float slowMb = plateaus.list.get(1).perfMb;
+                float threshold = (cacheMb + slowMb) / 2;
+
+                echoLn("  Cache: %.1f MB/s for %.1f GB, then %.1f MB/s",
+                       cacheMb, plateaus.list.get(0).lengthGb, slowMb);
+
+                for( int idleSec : config.idleSecs() ) {
+                    if( stop || !idle(idleSec) )
+                        break;
+
+                    Round round = rewrite(threshold);
+                    round.idleSec = idleSec;
+                    rounds.add(round);
+                    echoLn("  Idle %s sec: %.1f GB recovered at %.1f MB/s", idleSec, round.recoveredGb, round.perfMb);
+                }
+            }
+        }
+        catch( Exception e ) {
+            e.printStackTrace();
+        }
+        finally {
+            generator.close();
+        }
+
+        stopTime = System.currentTimeMillis();
+        elapsedMs = stopTime - startTime - idleMs;
+        stopSamplers();
+
+        echoLn("Recovery test complete, %.1f MB/s", totalPerfMb());
+        echoLn("");
+        echoLn("");
+
+        finished = true;
+    }
+
+    private boolean idle(int idleSec) throws InterruptedException {
+        echo("  Idle %s sec ...\r", idleSec);
+        long started = System.currentTimeMillis();
+        long until = started + idleSec * 1000L;
+        try {
+            while( !stop && System.currentTimeMillis() < until ) {
+                Thread.sleep(100);
+            }
+        }
+        finally {
+            idleMs += System.currentTimeMillis() - started;
+        }
+        return !stop;
+    }
+
+    /** Rewrites files in place until a window is written slower than {@code threshold} or all files are rewritten */
+    private Round rewrite(float threshold) throws Exception {
+        IoEngine engine = IoEngine.create(config, root);
+        ByteBuffer data = engine.allocate(config.bs * KB);
+        float blockSizeMb = config.bs / (float)KB;
+        Job job = jobs[0];
+        Round round = new Round();
+        long recovered = 0, recoveredNs = 0;
+        long window = 0, windowNs = 0;
+        boolean slow = false;
+
+        generator.init(data);
+        for( int i = 0; !stop && !slow && i < createdFiles.size(); i++ ) {
+            File file = createdFiles.get(i);
+            long fileSize = file.length();
+
+            try( IoEngine io = engine.openUpdate(file) ) {
+                live.file = file;
+                for( long pos = 0; !stop && pos + data.capacity() <= fileSize; pos += data.capacity() ) {
+                    ByteBuffer block = generator.next(data);
+                    long started = System.nanoTime();
+                    long syncNs;
+                    {
+                        syncNs = writeBlock(io, block, pos);
+                    }
+                    long finished = System.nanoTime();
+
+                    generator.release(block);
+                    addBlock(job, blockSizeMb / ((finished - started) / NANO_SEC), started, started, finished, syncNs);
+
+                    window += block.capacity();
+                    windowNs += finished - started;
+                    if( window >= WINDOW ) {
+                        if( window / (windowNs / NANO_SEC) / MB < threshold ) {
+                            slow = true;
+                            break;
+                        }
+
+                        recovered += window;
+                        recoveredNs += windowNs;
+                        window = windowNs = 0;
+                    }
+                }
+                syncFile(io);
+            }
+        }
+
+        round.recoveredGb = (float)recovered / GB;
+        round.perfMb = (recoveredNs == 0) ? 0 : recovered / (recoveredNs / NANO_SEC) / MB;
+        return round;
+    }
+}
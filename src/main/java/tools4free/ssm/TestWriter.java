@@ -1,126 +1,281 @@
-package tools4free.ssm;
-
-import java.io.File;
-import java.io.FileOutputStream;
-import java.nio.file.FileVisitResult;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-
-import static java.lang.Math.max;
-import static java.lang.Math.min;
-import static java.util.Locale.US;
-import static tools4free.ssm.SsdSlowMark.echoLn;
-
-public class TestWriter extends TestCase {
-    List<File> createdFiles = new ArrayList<>(500);
-
-    public TestWriter(Config config) {
-        super("Write", config, new File(config.out), null);
-    }
-
-    @Override
-    public void run() {
-        if( !doWaitFor() )
-            return;
-
-        root = new File(config.out);
-        File[] files = root.listFiles();
-
-        // cleanup from previous run
-        if( files != null ) {
-            for( File file : files ) {
-                String fn = file.getName();
-                if( fn.contains("file-") && fn.endsWith(".bin") )
-                    file.delete();
-            }
-        }
-
-        byte[] data = new byte[config.bs * SsdSlowMark.KB];
-        Random rnd = new Random();
-        float blockSizeMb = config.bs / (float)SsdSlowMark.KB;
-        long fileSizeLim = (long)config.fs * SsdSlowMark.MB;
-
-        for( int i = 0; i < data.length; i++ ) {
-            data[i] = (byte)rnd.nextInt();
-        }
-
-        File file = null;
-
-        echoLn("Files writer:");
-        echoLn("  File count: %s", config.fc);
-        echoLn("  File size: %s MB", config.fs);
-        echoLn("  Block size: %.1f MB", config.bs / 1024.0);
-        echoLn("  Root dir: %s", root.getAbsolutePath());
-        echoLn("  Disk model: %s", diskModel);
-        echoLn("--------------------------------------");
-
-        startTime = System.currentTimeMillis();
-        try {
-            root.mkdirs();
-            blocks = new float[config.fc * (1 + (int)(((long)config.fs * SsdSlowMark.MB) / (config.bs * SsdSlowMark.KB)))];
-            for( int i = 1; !stop && i <= config.fc; i++ ) {
-                long fileStarted = System.nanoTime();
-                long fileMB = 0;
-                long freeSpace = root.getFreeSpace();
-                float perfMin = Float.MAX_VALUE, perfMax = Float.MIN_VALUE;
-                long echoAfter = System.currentTimeMillis() + 100;
-
-                if( freeSpace - fileSizeLim < SsdSlowMark.GB ) {
-                    echoLn("  Abort, free space: %.1f", freeSpace / (float)SsdSlowMark.GB);
-                    break;
-                }
-
-                file = new File(root, String.format(US, "file-%06d.bin", i));
-                try( FileOutputStream fos = new FileOutputStream(file) ) {
-                    createdFiles.add(file);
-
-                    for( long fs = 0, n = 1; !stop && fs < fileSizeLim; fs += data.length, n++ ) {
-                        long started = System.nanoTime();
-                        {
-                            fos.write(data);
-                            fos.flush();
-                            fos.getFD().sync();
-                        }
-                        long finished = System.nanoTime();
-
-                        float sec = (finished - started) / SsdSlowMark.NANO_SEC;
-                        float perfBlock = blockSizeMb / sec;
-                        long now = System.currentTimeMillis();
-
-                        perfMin = min(perfMin, perfBlock);
-                        perfMax = max(perfMax, perfBlock);
-                        blocks[cBlocks++] = perfBlock;
-                        fileMB += data.length;
-                        if( now > echoAfter ) {
-                            echoAfter = now + 100;
-                            printPerf("Write", file, fileStarted, fileMB, perfMin, perfMax, n, fs / (double)fileSizeLim);
-                        }
-                    }
-                }
-
-                printPerf("Write", file, fileStarted, fileMB, perfMin, perfMax);
-                echoLn("                       ");
-            }
-        }
-        catch( Exception e ) {
-            System.err.println("Failed to write to: " + file);
-            e.printStackTrace();
-        }
-
-        stopTime = System.currentTimeMillis();
-        elapsedMs = stopTime - startTime;
-
-        echoLn("Write test complete");
-        echoLn("");
-        echoLn("");
-
-        finished = true;
-    }
-
-    public void cleanup() {
-        for( File file : createdFiles ) {
-            file.delete();
-        }
-    }
-}
+package tools4free.ssm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Locale.US;
+import static tools4free.ssm.SsdSlowMark.echoLn;
+
+public class TestWriter extends TestCase {
+    List<File> createdFiles = Collections.synchronizedList(new ArrayList<>(500));
+
+    public TestWriter(Config config) {
+        this("Write", config);
+    }
+
+    protected TestWriter(String testKind, Config config) {
+        super(testKind, config, new File(config.out), null);
+    }
+
+    @Override
+    public void run() {
+        if( !doWaitFor() )
+            return;
+
+        root = new File(config.out);
+        removeStaleFiles();
+
+        echoLn("Files writer:");
+        echoLn("  File count: %s", config.fc);
+        echoLn("  File size: %s MB", config.fs);
+        echoLn("  Block size: %.1f MB", config.bs / 1024.0);
+        echoLn("  I/O engine: %s, qd = %s, jobs = %s, sync = %s", config.engine, config.qd, config.jobs, config.sync);
+        echoLn("  Data: %s, prefill = %s, alloc = %s", config.data, config.prefill, config.alloc);
+        if( "steady".equals(config.until) )
+            echoLn("  Until: steady within %s%% for %s sec", config.stol, config.swin);
+        if( config.rate > 0 || config.iops > 0 )
+            echoLn("  Paced: rate = %s MB/s, iops = %s", config.rate, config.iops);
+        echoLn("  Root dir: %s", root.getAbsolutePath());
+        echoLn("  Disk model: %s", diskModel);
+        echoLn("--------------------------------------");
+
+        generator = createGenerator();
+        try {
+            long fileSizeLim = (long)config.fs * SsdSlowMark.MB;
+            int blockSize = config.bs * SsdSlowMark.KB;
+
+            prepare(fileSizeLim);
+            if( "steady".equals(config.until) )
+                steady = new SteadyState(config);
+
+            pacer = Pacer.of(config);
+            startTime = System.currentTimeMillis();
+            expectBlocks(config.fc * ((fileSizeLim + blockSize - 1) / blockSize));
+
+            JfrEvents.Phase phase = JfrEvents.phase(config, testKind, "run");
+            runJobs(this::writeFiles);
+            JfrEvents.end(phase);
+        }
+        catch( Exception e ) {
+            e.printStackTrace();
+        }
+        finally {
+            generator.close();
+        }
+
+        stopTime = System.currentTimeMillis();
+        elapsedMs = (startTime == 0) ? 0 : stopTime - startTime;
+        stopSamplers();
+
+        echoLn("Write test complete, %.1f MB/s", totalPerfMb());
+        echoSync();
+        echoPacing();
+        if( steady != null ) {
+            if( steady.reached )
+                echoLn("  Steady state: %.1f MB/s, reached after %.1f GB", steady.perfMb, steady.reachedGb);
+            else
+                echoLn("  Steady state: not reached");
+        }
+        echoLn("");
+        echoLn("");
+
+        finished = true;
+    }
+
+    /** Cleanup from previous run, files are reused in place by alloc=overwrite */
+    void removeStaleFiles() {
+        File[] files = root.listFiles();
+
+        if( files != null && !"overwrite".equals(config.alloc) ) {
+            for( File file : files ) {
+                if( isTestFile(file) )
+                    file.delete();
+            }
+        }
+    }
+
+    /** Creates the directory and lays out files before the timed run, unless alloc=append */
+    void prepare(long fileSizeLim) throws IOException, InterruptedException {
+        root.mkdirs();
+        if( !"append".equals(config.alloc) ) {
+            JfrEvents.Phase phase = JfrEvents.phase(config, testKind, "prepare");
+            prepareFiles(fileSizeLim);
+            JfrEvents.end(phase);
+        }
+    }
+
+    /** Writes every {@code config.jobs}-th file starting from the job number */
+    void writeFiles(Job job) {
+        IoEngine engine = IoEngine.create(config, root);
+        int blockSize = config.bs * SsdSlowMark.KB;
+        ByteBuffer[] buffers = new ByteBuffer[config.qd];
+        float blockSizeMb = config.bs / (float)SsdSlowMark.KB;
+        long fileSizeLim = (long)config.fs * SsdSlowMark.MB;
+        // space of all files is checked and taken by prepareFiles
+        boolean reserved = "prealloc".equals(config.alloc) || "overwrite".equals(config.alloc);
+
+        for( int n = 0; n < buffers.length; n++ ) {
+            buffers[n] = engine.allocate(blockSize);
+            generator.init(buffers[n]);
+        }
+
+        ByteBuffer data = buffers[0];
+        File file = null;
+
+        try {
+            for( int i = 1 + job.n; !stop && i <= config.fc; i += config.jobs ) {
+                long fileStarted = System.nanoTime();
+                long fileMB = 0;
+                long freeSpace = root.getUsableSpace();
+                float perfMin = Float.MAX_VALUE, perfMax = Float.MIN_VALUE;
+                long echoAfter = System.currentTimeMillis() + 100;
+
+                if( !reserved && freeSpace - fileSizeLim * config.jobs < SsdSlowMark.GB ) {
+                    echoLn("  Abort, free space: %.1f", freeSpace / (float)SsdSlowMark.GB);
+                    break;
+                }
+
+                file = new File(root, String.format(US, "file-%06d.bin", i));
+                try( IoEngine io = "append".equals(config.alloc) ? engine.openWrite(file) : engine.openUpdate(file) ) {
+                    createdFiles.add(file);
+                    live.file = file;
+                    job.cFiles++;
+
+                    if( config.qd > 1 ) {
+                        long cFileBlocks = (fileSizeLim + blockSize - 1) / blockSize;
+                        runQueued("Write", job, file, buffers, cFileBlocks,
+                                  (series, buf, pos) -> writeBlock(io, buf, pos));
+                    }
+                    else {
+                        for( long fs = 0, n = 1; !stop && fs < fileSizeLim; fs += blockSize, n++ ) {
+                            ByteBuffer block = generator.next(data);
+                            long due = pace();
+                            long started = System.nanoTime();
+                            long syncNs;
+                            {
+                                syncNs = writeBlock(io, block, fs);
+                            }
+                            long finished = System.nanoTime();
+
+                            generator.release(block);
+
+                            float sec = (finished - started) / SsdSlowMark.NANO_SEC;
+                            float perfBlock = blockSizeMb / sec;
+                            long now = System.currentTimeMillis();
+
+                            perfMin = min(perfMin, perfBlock);
+                            perfMax = max(perfMax, perfBlock);
+                            addBlock(job, perfBlock, due, started, finished, syncNs);
+                            fileMB += blockSize;
+                            if( now > echoAfter ) {
+                                echoAfter = now + 100;
+                                printPerf("Write", file, fileStarted, fileMB, perfMin, perfMax, n, fs / (double)fileSizeLim);
+                            }
+                        }
+
+                        printPerf("Write", file, fileStarted, fileMB, perfMin, perfMax);
+                    }
+
+                    // after workers of the queue are joined, no block of the file is in flight
+                    syncFile(io);
+                }
+
+                echoLn("                       ");
+            }
+        }
+        catch( Exception e ) {
+            System.err.println("Failed to write to: " + file);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Lays out all files before the timed run: {@code prealloc} reserves their space (fallocate,
+     * or setting the length where it isn't available), {@code sparse} only sets their length
+     * and {@code overwrite} writes files that don't exist yet or are too short.
+     */
+    void prepareFiles(long fileSizeLim) throws IOException, InterruptedException {
+        IoEngine engine = IoEngine.create(config, root);
+        ByteBuffer data = engine.allocate(config.bs * SsdSlowMark.KB);
+        boolean windows = System.getProperty("os.name").contains("Windows");
+        boolean reserved = true;
+
+        if( !"sparse".equals(config.alloc) ) {
+            long needed = 0;
+            for( int i = 1; i <= config.fc; i++ ) {
+                File file = new File(root, String.format(US, "file-%06d.bin", i));
+                needed += Math.max(0, fileSizeLim - file.length());
+            }
+
+            long freeSpace = root.getUsableSpace();
+            if( freeSpace - needed < SsdSlowMark.GB ) {
+                echoLn("  Abort, free space: %.1f GB, files need %.1f GB",
+                       freeSpace / (float)SsdSlowMark.GB, needed / (float)SsdSlowMark.GB);
+                stop = true;
+                return;
+            }
+        }
+
+        generator.init(data);
+        for( int i = 1; !stop && i <= config.fc; i++ ) {
+            File file = new File(root, String.format(US, "file-%06d.bin", i));
+            SsdSlowMark.echo("  Preparing %s ...\r", file);
+
+            switch( config.alloc ) {
+                case "prealloc":
+                    try {
+                        Shell.exec("fallocate", "-l", String.valueOf(fileSizeLim), file.getAbsolutePath());
+                    }
+                    catch( IOException e ) {
+                        // no fallocate, e.g. on Windows where setting the length allocates space anyway
+                    }
+                    if( file.length() != fileSizeLim ) {
+                        // allocates on Windows, but leaves the file sparse elsewhere
+                        reserved &= windows;
+                        try( RandomAccessFile raf = new RandomAccessFile(file, "rw") ) {
+                            raf.setLength(fileSizeLim);
+                        }
+                    }
+                    break;
+
+                case "sparse":
+                    try( RandomAccessFile raf = new RandomAccessFile(file, "rw") ) {
+                        raf.setLength(fileSizeLim);
+                    }
+                    break;
+
+                case "overwrite":
+                    if( file.length() >= fileSizeLim )
+                        break;
+
+                    try( IoEngine io = engine.openWrite(file) ) {
+                        for( long pos = 0; !stop && pos < fileSizeLim; pos += data.capacity() ) {
+                            ByteBuffer block = generator.next(data);
+                            io.write(block, pos);
+                            generator.release(block);
+                        }
+                        io.sync();
+                    }
+                    break;
+            }
+        }
+        echoLn("");
+
+        if( !reserved )
+            echoLn("  Warning: fallocate failed, files are sparse and get their space while written as with alloc=sparse");
+    }
+
+    @Override
+    public void cleanup() {
+        for( File file : createdFiles ) {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package tools4free.ssm;
+
+import tools4free.ssm.ResultsWriter.Chunk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Blocks of a test bucketed by the time they finished at, every {@code config.tl} ms from the first
+ * block. Unlike chunks, which follow the data written, buckets follow the wall clock: a stall shows
+ * as buckets with little or no data instead of a single slow block, and idle time stays visible.
+ */
+public class Timeline {
+    final long intervalNs;
+    final long startNs;
+    final long startEpochMs;
+    final float blockSizeMb;
+    final List<Bucket> buckets = new ArrayList<>();
+    long lastNs;
+
+    static class Bucket {
+        long count;
+        float min = Float.MAX_VALUE;    // block throughput, MB/s
+        float max;
+        long sumLatencyNs;
+        long maxLatencyNs;
+    }
+
+    Timeline(Config config, long startNs) {
+        this.intervalNs = config.tl * 1_000_000L;
+        this.startNs = startNs;
+        this.startEpochMs = System.currentTimeMillis() - (System.nanoTime() - startNs) / 1_000_000;
+        this.blockSizeMb = config.bs / (float)SsdSlowMark.KB;
+        this.lastNs = startNs;
+    }
+
+    void add(float perf, long latencyNs, long finishedNs) {
+        int n = (int)(Math.max(0, finishedNs - startNs) / intervalNs);
+        while( buckets.size() <= n ) {
+            buckets.add(new Bucket());
+        }
+
+        Bucket b = buckets.get(n);
+        b.count++;
+        b.min = Math.min(b.min, perf);
+        b.max = Math.max(b.max, perf);
+        b.sumLatencyNs += latencyNs;
+        b.maxLatencyNs = Math.max(b.maxLatencyNs, latencyNs);
+        lastNs = Math.max(lastNs, finishedNs);
+    }
+
+    /** Length of the bucket in seconds, the last one ends with the last block */
+    float secOf(int n) {
+        long endNs = Math.min(startNs + (n + 1) * intervalNs, lastNs);
+        return Math.max(1, endNs - startNs - n * intervalNs) / SsdSlowMark.NANO_SEC;
+    }
+
+    /** Throughput of the test in the bucket, MB/s */
+    float perfMb(int n) {
+        return buckets.get(n).count * blockSizeMb / secOf(n);
+    }
+
+    float durationSec() {
+        return (lastNs - startNs) / SsdSlowMark.NANO_SEC;
+    }
+
+    /**
+     * Buckets as chunks for the chart, neighbour buckets are combined when there are more
+     * than {@code maxChunks} of them. Values are throughput of the buckets, so min and max
+     * of a chunk are its slowest and fastest interval. Offset of a chunk is in seconds.
+     */
+    List<Chunk> chunks(int maxChunks) {
+        List<Chunk> chunks = new ArrayList<>();
+        int width = (buckets.size() + maxChunks - 1) / maxChunks;
+        float[] perf = new float[Math.max(1, width)];
+
+        for( int from = 0; from < buckets.size(); from += width ) {
+            int to = Math.min(from + width, buckets.size());
+            for( int n = from; n < to; n++ ) {
+                perf[n - from] = perfMb(n);
+            }
+
+            ChunkAggregator.Acc acc = ChunkAggregator.Acc.of(perf, to - from);
+            chunks.add(acc.toChunk(from * intervalNs / SsdSlowMark.NANO_SEC, blockSizeMb));
+        }
+
+        return chunks;
+    }
+}
@@ -0,0 +1,81 @@
+package tools4free.ssm;
+
+import org.junit.Test;
+
+import tools4free.ssm.ResultsWriter.Chunk;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChunkAggregatorTest {
+
+    @Test
+    public void widthFromExpectedBlocks() {
+        ChunkAggregator aggregator = new ChunkAggregator(10, 1);
+        aggregator.expect(100);
+        for( int i = 0; i < 100; i++ ) {
+            aggregator.add(i);
+        }
+
+        List<Chunk> chunks = aggregator.chunks();
+        assertEquals(10, chunks.size());
+        assertEquals(10, aggregator.chunkWidth);
+        assertEquals(30, chunks.get(3).offsetMb, 0);
+        assertEquals(30, chunks.get(3).min, 0);
+        assertEquals(34.5, chunks.get(3).avg, 1e-4);
+        assertEquals(39, chunks.get(3).max, 0);
+    }
+
+    @Test
+    public void mergesPairsAndDoublesWidth() {
+        ChunkAggregator aggregator = new ChunkAggregator(4, 1);
+        for( int i = 0; i < 10; i++ ) {
+            aggregator.add((i < 4) ? 100 : 50);
+        }
+
+        // 4 chunks of 1 block merged into 2 of 2, then 4 of 2 into 2 of 4 and 2 blocks left
+        List<Chunk> chunks = aggregator.chunks();
+        assertEquals(4, aggregator.chunkWidth);
+        assertEquals(3, chunks.size());
+        assertEquals(100, chunks.get(0).avg, 0);
+        assertEquals(50, chunks.get(1).avg, 0);
+        assertEquals(8, chunks.get(2).offsetMb, 0);
+        assertEquals(50, chunks.get(2).avg, 0);
+    }
+
+    @Test
+    public void sidesOfAverage() {
+        ChunkAggregator aggregator = new ChunkAggregator(2, 1);
+        aggregator.expect(8);
+        for( float perf : new float[] { 10, 20, 30, 40 } ) {
+            aggregator.add(perf);
+        }
+
+        Chunk chunk = aggregator.chunks().get(0);
+        assertEquals(10, chunk.min, 0);
+        assertEquals(15, chunk.avgMin, 0);
+        assertEquals(25, chunk.avg, 0);
+        assertEquals(35, chunk.avgMax, 0);
+        assertEquals(40, chunk.max, 0);
+    }
+
+    @Test
+    public void sampledWideChunk() {
+        ChunkAggregator aggregator = new ChunkAggregator(2, 1);
+        aggregator.expect(200_000);
+        for( int i = 0; i < 100_000; i++ ) {
+            aggregator.add((i % 2 == 0) ? 100 : 200, 0, 0, (i + 1) * 1000L, i * 1000L);
+        }
+
+        // exact values stay exact, sides and percentiles come from the sample
+        Chunk chunk = aggregator.chunks().get(0);
+        assertEquals(100, chunk.min, 0);
+        assertEquals(150, chunk.avg, 1e-3);
+        assertEquals(200, chunk.max, 0);
+        assertEquals(100, chunk.avgMin, 0.01);
+        assertEquals(200, chunk.avgMax, 0.01);
+        assertEquals(100, chunk.latMaxMs, 0.01);
+        assertEquals(50, chunk.latP50Ms, 5);
+    }
+}
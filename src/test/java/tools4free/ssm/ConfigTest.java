@@ -0,0 +1,32 @@
+package tools4free.ssm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigTest {
+
+    static Config config(String... args) {
+        return new Config().fromArgs(args);
+    }
+
+    @Test
+    public void flags() {
+        assertTrue(config("engine=channel", "direct=true").direct);
+        assertFalse(config("engine=channel", "direct=false").direct);
+        assertTrue(config("jfr=true").jfr);
+        assertFalse(config().jfr);
+    }
+
+    @Test
+    public void syncPolicy() {
+        assertTrue(config("sync=block").isSyncDue(1));
+        assertFalse(config("sync=file").isSyncDue(Long.MAX_VALUE));
+        assertTrue(config("sync=file").isSyncAtEnd());
+        assertFalse(config("sync=64").isSyncDue(63 * SsdSlowMark.KB));
+        assertTrue(config("sync=64").isSyncDue(64 * SsdSlowMark.KB));
+        assertTrue(config("sync=64").isSyncAtEnd());
+        assertFalse(config("sync=none").isSyncAtEnd());
+    }
+}
@@ -0,0 +1,74 @@
+package tools4free.ssm;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DataGeneratorTest {
+    static final int BLOCK = 256 * SsdSlowMark.KB;
+
+    static ByteBuffer block(String data) throws InterruptedException {
+        Config config = new Config();
+        config.data = data;
+
+        try( DataGenerator generator = new DataGenerator(config, ByteBuffer::allocate, 1) ) {
+            ByteBuffer own = ByteBuffer.allocate(BLOCK);
+            generator.init(own);
+            return generator.next(own);
+        }
+    }
+
+    /** Size of the block over its deflated size */
+    static double ratio(ByteBuffer data) {
+        byte[] bytes = new byte[data.capacity()];
+        data.duplicate().clear().get(bytes);
+
+        Deflater deflater = new Deflater();
+        deflater.setInput(bytes);
+        deflater.finish();
+
+        byte[] out = new byte[bytes.length * 2];
+        int size = 0;
+        while( !deflater.finished() ) {
+            size += deflater.deflate(out);
+        }
+        deflater.end();
+        return bytes.length / (double)size;
+    }
+
+    @Test
+    public void randomDoesNotCompress() throws InterruptedException {
+        assertTrue(ratio(block("random")) < 1.01);
+    }
+
+    @Test
+    public void compressibleByRatio() throws InterruptedException {
+        assertEquals(4, ratio(block("compressible:4")), 0.3);
+        assertEquals(2, ratio(block("compressible:2")), 0.2);
+    }
+
+    @Test
+    public void zeroIsZeros() throws InterruptedException {
+        ByteBuffer data = block("zero");
+        for( int i = 0; i < data.capacity(); i++ ) {
+            assertEquals(0, data.get(i));
+        }
+    }
+
+    @Test
+    public void freshContentPerBlock() throws InterruptedException {
+        Config config = new Config();
+        config.data = "random";
+
+        try( DataGenerator generator = new DataGenerator(config, ByteBuffer::allocate, 1) ) {
+            ByteBuffer own = ByteBuffer.allocate(BLOCK);
+            long first = generator.next(own).getLong(0);
+            long second = generator.next(own).getLong(0);
+            assertTrue(first != second);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package tools4free.ssm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverValues() {
+        for( long ns : new long[] { 0, 1, 255, 256, 257, 1000, 123_456_789L, LatencyHistogram.MAX_VALUE } ) {
+            int index = LatencyHistogram.indexOf(ns);
+            long lowest = (index == 0) ? 0 : LatencyHistogram.highestOf(index - 1) + 1;
+
+            assertTrue(ns + " >= " + lowest, ns >= lowest);
+            assertTrue(ns + " <= " + LatencyHistogram.highestOf(index), ns <= LatencyHistogram.highestOf(index));
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for( int i = 1; i <= 10000; i++ ) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(5_000_000, histogram.percentile(50), 5_000_000 * 0.008);
+        assertEquals(9_900_000, histogram.percentile(99), 9_900_000 * 0.008);
+        assertEquals(10_000_000, histogram.percentile(100));
+        assertEquals(10_000_000, histogram.max);
+    }
+}
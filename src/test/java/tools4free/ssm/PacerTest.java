@@ -0,0 +1,59 @@
+package tools4free.ssm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PacerTest {
+
+    @Test
+    public void slowerOfRateAndIops() {
+        Config config = new Config();
+        assertNull(Pacer.of(config));
+
+        config.bs = 1024;
+        config.rate = 100;
+        assertEquals(10_000_000, Pacer.of(config).intervalNs);
+
+        config.iops = 50;
+        assertEquals(20_000_000, Pacer.of(config).intervalNs);
+        assertEquals(50, Pacer.of(config).rateMb(config), 1e-3);
+    }
+
+    @Test
+    public void dueTimesFollowSchedule() {
+        Pacer pacer = new Pacer(1_000_000);
+
+        // operations are due at fixed points however late they start, so the latency of a stall counts
+        long first = pacer.await();
+        sleep(20);
+        long second = pacer.await();
+        long third = pacer.await();
+
+        assertEquals(pacer.startNs, first);
+        assertEquals(1_000_000, second - first);
+        assertEquals(1_000_000, third - second);
+        assertTrue(System.nanoTime() - second >= 15_000_000);
+    }
+
+    @Test
+    public void waitsUntilDue() {
+        Pacer pacer = new Pacer(5_000_000);
+        for( int i = 0; i < 4; i++ ) {
+            long due = pacer.await();
+            assertTrue(System.nanoTime() >= due);
+        }
+        assertTrue(System.nanoTime() - pacer.startNs >= 15_000_000);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        }
+        catch( InterruptedException e ) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
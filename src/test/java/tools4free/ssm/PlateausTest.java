@@ -0,0 +1,98 @@
+package tools4free.ssm;
+
+import org.junit.Test;
+
+import tools4free.ssm.ResultsWriter.Chunk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlateausTest {
+    static final float CHUNK_MB = 64;
+
+    /** Chunks of the given levels, each for the given number of chunks, with gaussian noise relative to the level */
+    static List<Chunk> series(long seed, double noise, double[] levels, int[] lengths) {
+        Random random = new Random(seed);
+        List<Chunk> chunks = new ArrayList<>();
+
+        for( int i = 0; i < levels.length; i++ ) {
+            for( int j = 0; j < lengths[i]; j++ ) {
+                float avg = (float)(levels[i] * (1 + noise * random.nextGaussian()));
+                chunks.add(new Chunk(chunks.size() * CHUNK_MB, avg));
+            }
+        }
+        return chunks;
+    }
+
+    @Test
+    public void singleStep() {
+        Plateaus plateaus = Plateaus.of(series(1, 0.03, new double[] { 2000, 500 }, new int[] { 100, 200 }));
+
+        assertEquals(2, plateaus.list.size());
+        assertEquals(100, plateaus.list.get(0).to, 2);
+        assertEquals(2000, plateaus.list.get(0).perfMb, 20);
+        assertEquals(500, plateaus.list.get(1).perfMb, 5);
+        assertEquals(100 * CHUNK_MB / 1024, plateaus.list.get(1).startGb, 2 * CHUNK_MB / 1024);
+    }
+
+    @Test
+    public void threeLevels() {
+        Plateaus plateaus = Plateaus.of(series(2, 0.05, new double[] { 3000, 1000, 1500 }, new int[] { 60, 120, 120 }));
+
+        assertEquals(3, plateaus.list.size());
+        assertEquals(1500, plateaus.list.get(2).perfMb, 30);
+    }
+
+    @Test
+    public void noiseIsOnePlateau() {
+        for( long seed = 0; seed < 20; seed++ ) {
+            Plateaus plateaus = Plateaus.of(series(seed, 0.1, new double[] { 8000 }, new int[] { 400 }));
+            assertEquals("seed " + seed, 1, plateaus.list.size());
+        }
+    }
+
+    @Test
+    public void shortNoisyRunIsOnePlateau() {
+        // e.g. a short read run: few chunks, heavy noise and spikes
+        for( int n : new int[] { 25, 40, 80, 200 } ) {
+            for( long seed = 0; seed < 20; seed++ ) {
+                Random random = new Random(seed);
+                List<Chunk> chunks = new ArrayList<>();
+                for( int i = 0; i < n; i++ ) {
+                    double spike = (random.nextInt(8) == 0) ? 0.65 : 1;
+                    chunks.add(new Chunk(i * CHUNK_MB, (float)(7500 * spike * Math.exp(0.12 * random.nextGaussian()))));
+                }
+
+                Plateaus plateaus = Plateaus.of(chunks);
+                assertEquals(n + " chunks, seed " + seed, 1, plateaus.list.size());
+            }
+        }
+    }
+
+    @Test
+    public void smallStepIsNotCliff() {
+        // 5% apart, below MIN_STEP
+        Plateaus plateaus = Plateaus.of(series(3, 0.01, new double[] { 1000, 950 }, new int[] { 150, 150 }));
+
+        assertEquals(1, plateaus.list.size());
+        assertEquals(975, plateaus.list.get(0).perfMb, 5);
+    }
+
+    @Test
+    public void plateausCoverSeries() {
+        Plateaus plateaus = Plateaus.of(series(4, 0.05, new double[] { 900, 300, 600, 200 }, new int[] { 50, 80, 80, 90 }));
+
+        int at = 0;
+        for( Plateaus.Plateau p : plateaus.list ) {
+            assertEquals(at, p.from);
+            assertTrue(p.to > p.from);
+            at = p.to;
+        }
+        assertEquals(300, at);
+        assertEquals(4, plateaus.list.size());
+    }
+}
@@ -0,0 +1,103 @@
+package tools4free.ssm;
+
+import org.junit.Test;
+
+import tools4free.ssm.ResultsWriter.Chunk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResultsFileTest {
+
+    static List<Chunk> chunks(int count) {
+        List<Chunk> chunks = new ArrayList<>();
+        for( int i = 0; i < count; i++ ) {
+            Chunk chunk = new Chunk(i * 64, 100 + i, 200 + i, 300 + i, 400 + i, 500 + i);
+            chunk.submitMs = 1.5f;
+            chunk.syncMs = 2.5f;
+            chunk.rateMb = 290 + i;
+            chunk.latP50Ms = 0.25f;
+            chunk.latP99Ms = 3.75f;
+            chunk.latMaxMs = 12.5f;
+            chunk.tempC = 41 + i;
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    static File written(int cChunks) throws IOException {
+        File file = File.createTempFile("ssm-test-", ResultsFile.SUFFIX);
+        file.deleteOnExit();
+        ResultsFile.write(file, "Model X", chunks(cChunks), new float[] { 310.5f, 320.25f });
+        return file;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        File file = written(3);
+        ResultsFile res = ResultsFile.read(file);
+
+        assertEquals("Model X", res.diskModel);
+        assertEquals(3, res.chunks.size());
+        Chunk chunk = res.chunks.get(2);
+        assertEquals(128, chunk.offsetMb, 0);
+        assertEquals(102, chunk.min, 0);
+        assertEquals(202, chunk.avgMin, 0);
+        assertEquals(302, chunk.avg, 0);
+        assertEquals(402, chunk.avgMax, 0);
+        assertEquals(502, chunk.max, 0);
+        assertEquals(1.5, chunk.submitMs, 0);
+        assertEquals(2.5, chunk.syncMs, 0);
+        assertEquals(292, chunk.rateMb, 0);
+        assertEquals(0.25, chunk.latP50Ms, 0);
+        assertEquals(3.75, chunk.latP99Ms, 0);
+        assertEquals(12.5, chunk.latMaxMs, 0);
+        assertEquals(43, chunk.tempC, 0);
+        assertEquals(2, res.averages.length);
+        assertEquals(320.25, res.averages[1], 0);
+        file.delete();
+    }
+
+    @Test(expected = IOException.class)
+    public void truncated() throws IOException {
+        File file = written(10);
+        try( RandomAccessFile raf = new RandomAccessFile(file, "rw") ) {
+            raf.setLength(raf.length() - 4);
+        }
+        ResultsFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void shorterThanHeader() throws IOException {
+        File file = written(1);
+        try( RandomAccessFile raf = new RandomAccessFile(file, "rw") ) {
+            raf.setLength(12);
+        }
+        ResultsFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptCount() throws IOException {
+        File file = written(1);
+        try( RandomAccessFile raf = new RandomAccessFile(file, "rw") ) {
+            // chunks count, little-endian
+            raf.seek(8);
+            raf.write(new byte[] { (byte)0xff, (byte)0xff, (byte)0xff, (byte)0x7f });
+        }
+        ResultsFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void notResultsFile() throws IOException {
+        File file = written(1);
+        try( RandomAccessFile raf = new RandomAccessFile(file, "rw") ) {
+            raf.writeInt(0);
+        }
+        ResultsFile.read(file);
+    }
+}
@@ -0,0 +1,69 @@
+package tools4free.ssm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SteadyStateTest {
+    static final long SEC = 1_000_000_000L;
+
+    /** Feeds one block per round of the given throughput, MB/s, returns the round steady state was reached at or -1 */
+    static int feed(SteadyState steady, double... perfMb) {
+        long now = SEC;
+        steady.add(0, now);
+        for( int round = 0; round < perfMb.length; round++ ) {
+            now += SEC;
+            if( steady.add((long)(perfMb[round] * SsdSlowMark.MB), now) )
+                return round;
+        }
+        return -1;
+    }
+
+    static SteadyState steady(int stol, int swin) {
+        Config config = new Config();
+        config.stol = stol;
+        config.swin = swin;
+        return new SteadyState(config);
+    }
+
+    @Test
+    public void flatIsSteadyOnceWindowIsFull() {
+        SteadyState steady = steady(10, 5);
+        double[] perf = new double[20];
+        java.util.Arrays.fill(perf, 500);
+
+        assertEquals(4, feed(steady, perf));
+        assertTrue(steady.reached);
+        assertEquals(500, steady.perfMb, 0.5);
+    }
+
+    @Test
+    public void dropBeforeSteady() {
+        // fast cache first, then the drive settles at a lower throughput
+        SteadyState steady = steady(10, 5);
+        double[] perf = { 2000, 2000, 2000, 500, 520, 480, 510, 490, 500, 505 };
+
+        assertEquals(7, feed(steady, perf));
+        assertEquals(500, steady.perfMb, 10);
+    }
+
+    @Test
+    public void noiseBeyondTolerance() {
+        SteadyState steady = steady(10, 5);
+        double[] perf = { 400, 600, 400, 600, 400, 600, 400, 600, 400, 600 };
+
+        assertEquals(-1, feed(steady, perf));
+        assertFalse(steady.reached);
+    }
+
+    @Test
+    public void trendWithinTolerance() {
+        // every round is within 10% of the window average, but the throughput keeps falling
+        SteadyState steady = steady(10, 5);
+        double[] perf = { 540, 520, 500, 480, 460, 440, 420, 400 };
+
+        assertEquals(-1, feed(steady, perf));
+    }
+}